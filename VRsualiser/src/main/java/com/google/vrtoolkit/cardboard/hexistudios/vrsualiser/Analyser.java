@@ -1,80 +1,221 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser;
 
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
-import android.media.audiofx.Visualizer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.AudioCapture;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.AudioSource;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.BeatDetector;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.CaptureRequirements;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.PcmRingBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.PcmSpectrumEngine;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumAnalyser;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.TripleBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.Window;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.metrics.FrameProfiler;
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.Renderer;
 
 /**
  * Created by Tom on 27/03/2016.
+ * Audio comes from an AudioSource (output mix, microphone or synthetic) and goes through a ring
+ * buffer to our own FFT, on AudioCapture's threads, into SpectrumFrames and waveforms.
+ * Renderers are fed from them on the GL thread by dispatch(), so they never change geometry
+ * mid-draw. The capture threads run for as long as the Analyser does; switching renderer only
+ * swaps the subscriber. Beats are tracked on the analysis thread too, and renderers hear of them
+ * through onBeat().
+ *
+ * There is one subscriber, the renderer on screen, and everything is sized to what it says it
+ * needs in its CaptureRequirements: the smallest FFT giving a couple of bins per band, hopping as
+ * far as its update rate allows, source blocks no longer than that, and no waveform unless it
+ * asks for one. While it needs nothing the source is paused and nothing runs at all.
  */
 public class Analyser {
-  private Visualizer visualiser;
-  private AudioRecord audioRecorder;
-  private static final int RECORDING_SAMPLE_RATE = 44100;
-  Renderer renderer;
+  //Waveform history published per frame, the Visualizer's largest capture.
+  public static final int WAVE_SIZE = 1024;
+  //Waveforms are drawn as they are, so one a display frame.
+  private static final int WAVE_RATE = 60;
+  private static final int MIN_FFT_SIZE = 256, MAX_FFT_SIZE = 4096;
+  private static final int BINS_PER_BAND = 2;
 
-  public Analyser(Renderer renderer) {
-    this.renderer = renderer;
+  private final AudioSource source;
+  private AudioCapture capture;
+  private final TripleBuffer<byte[]> waveFrames;
 
-    renderer.setup(new Object[]{Visualizer.getCaptureSizeRange()[1], 256});
+  //GL thread only.
+  private Renderer subscriber;
+  private long lastBeatCount;
+  private CaptureRequirements requirements = CaptureRequirements.NONE;
+  private PcmSpectrumEngine engine; //Null while nothing wants a spectrum.
+  private SpectrumAnalyser spectrumAnalyser;
+  private BeatDetector beatDetector;
+  private TripleBuffer<SpectrumFrame> spectrumFrames;
 
-    //Setup the visualiser, choosing whether to use audio from another app or microphone.
-    setupVisualiser(false, true, true); //True: Use microphone, collect waveform data, convert to fft.
+  public Analyser(FrameProfiler profiler, AudioSource source) {
+    this.source = source;
+
+    waveFrames = new TripleBuffer<byte[]>(
+        new byte[WAVE_SIZE], new byte[WAVE_SIZE], new byte[WAVE_SIZE]);
+
+    //A quarter second. Past that the oldest audio is dropped, only the latest is worth showing.
+    int sampleRate = source.getSampleRate();
+    int ringSize = Math.max(sampleRate / 4, source.getBlockSize() * 4);
+    PcmRingBuffer ring = new PcmRingBuffer(PcmRingBuffer.capacityFor(ringSize),
+        PcmRingBuffer.OverflowPolicy.DROP_OLDEST);
+
+    //Nothing is analysed until a subscriber says what it needs.
+    capture = new AudioCapture(source, ring, waveFrames, WAVE_SIZE, MAX_FFT_SIZE, profiler);
+    capture.start(); //Starts the capture and analysis threads.
   }
 
+  /**
+   * Call once the GL thread has paused. Capture stops too: the source is paused and the threads
+   * sleep until onResume(), rather than analysing audio nobody will see.
+   */
   public void onPause(boolean isFinishing) {
     if (isFinishing) {
-      visualiser.setEnabled(false);
-      visualiser.release();
+      release();
+    } else if (capture != null) {
+      capture.configure(null, false, 0);
     }
   }
 
+  //Call before the GL thread resumes. Picks capture back up for the renderer that was showing.
+  public void onResume() {
+    if (subscriber == null || capture == null) { return; }
+    requirements = null; //So configure() doesn't take them as unchanged.
+    configure(subscriber.getCaptureRequirements());
+  }
+
   public void onDestroy() {
-    visualiser.setEnabled(false);
-    visualiser.release();
-  }
-
-  private void initMicrophone() {
-    int bufferSize = AudioRecord.getMinBufferSize(
-        RECORDING_SAMPLE_RATE,
-        AudioFormat.CHANNEL_IN_MONO,
-        AudioFormat.ENCODING_PCM_16BIT
-    );
-
-    audioRecorder = new AudioRecord(
-        MediaRecorder.AudioSource.MIC,
-        RECORDING_SAMPLE_RATE,
-        AudioFormat.CHANNEL_IN_MONO,
-        AudioFormat.ENCODING_PCM_16BIT,
-        bufferSize
-    );
-    //audioRecorder.startRecording();
-  }
-
-  private void setupVisualiser(Boolean useMicrophone, Boolean getWaveform, Boolean getFft) {
-    // Create the Visualizer object and attach it to our input.
-    if (useMicrophone) {
-      initMicrophone();
-      visualiser = new Visualizer(audioRecorder.getAudioSessionId());
+    release();
+  }
+
+  private void release() {
+    if (capture != null) {
+      capture.stop(); //Stops and releases the source too.
+      capture = null;
+    }
+  }
+
+  public AudioSource getSource() {
+    return source;
+  }
+
+  //Smallest power of two FFT with BINS_PER_BAND bins for every band.
+  static int fftSizeFor(int bands) {
+    int size = MIN_FFT_SIZE;
+    while (size / 2 < bands * BINS_PER_BAND && size < MAX_FFT_SIZE) {
+      size *= 2;
+    }
+    return size;
+  }
+
+  /**
+   * Longest hop that still gives rate frames a second; past the FFT size, samples are skipped.
+   * A rate of 0 (any) gets back to back frames, one per fftSize samples.
+   */
+  static int hopSizeFor(float rate, int fftSize, int sampleRate) {
+    if (rate <= 0) { return fftSize; }
+    return Math.max(1, (int) (sampleRate / rate));
+  }
+
+  /**
+   * Call on the GL thread to resize the analysis. Building a new FFT only happens when the
+   * requirements change; the analysis thread picks the new setup up with its next chunk, and the
+   * capture thread pauses the source, or changes its block size, between reads.
+   */
+  public void configure(CaptureRequirements needed) {
+    if (needed.equals(requirements) || capture == null) { return; }
+    requirements = needed;
+
+    //Source blocks as long as they can be while still delivering every frame on time.
+    int sampleRate = source.getSampleRate();
+    int blockSize = needed.waveform ? sampleRate / WAVE_RATE : Integer.MAX_VALUE;
+    if (needed.wantsSpectrum()) {
+      int fftSize = fftSizeFor(needed.bands);
+      int bins = fftSize / 2;
+      spectrumAnalyser = new SpectrumAnalyser(bins);
+      spectrumFrames = new TripleBuffer<SpectrumFrame>(
+          new SpectrumFrame(bins), new SpectrumFrame(bins), new SpectrumFrame(bins));
+      int hopSize = hopSizeFor(needed.minUpdateRate, fftSize, sampleRate);
+      engine = new PcmSpectrumEngine(fftSize, hopSize, sampleRate, Window.HANN, spectrumAnalyser,
+          spectrumFrames);
+      beatDetector = new BeatDetector(bins, engine.binFrequency(1), engine.getFrameRate());
+      engine.setBeatDetector(beatDetector);
+      blockSize = Math.min(blockSize, hopSize);
     } else {
-      visualiser = new Visualizer(0);
+      engine = null;
+      spectrumAnalyser = null;
+      beatDetector = null;
+      spectrumFrames = null;
     }
 
-    visualiser.setCaptureSize(Visualizer.getCaptureSizeRange()[1]); //Set capture size to max.
+    capture.configure(engine, needed.waveform,
+        blockSize == Integer.MAX_VALUE ? 0 : blockSize); //0: paused, size doesn't matter.
+  }
+
+  /**
+   * Call on the GL thread, between frames, to change which renderer dispatch() feeds. The analysis
+   * is resized to the renderer's requirements, and the renderer gets the last frames straight
+   * away rather than showing nothing until the next capture.
+   */
+  public void setSubscriber(Renderer renderer) {
+    subscriber = renderer;
+    configure(renderer != null ? renderer.getCaptureRequirements() : CaptureRequirements.NONE);
+    if (renderer == null) { return; }
 
-    //Setup listener to fill bytes with waveform/fft data every sampleRate time.
-    visualiser.setDataCaptureListener(
-        new Visualizer.OnDataCaptureListener() {
-          public void onWaveFormDataCapture(Visualizer visualizer, byte[] bytes, int samplingRate) {
-            renderer.updateVisualiserWave(bytes);
-          }
+    if (requirements.waveform) {
+      renderer.updateVisualiserWave(waveFrames.latest());
+    }
+    if (spectrumFrames != null) {
+      SpectrumFrame latest = spectrumFrames.latest();
+      renderer.updateSpectrum(latest);
+      lastBeatCount = latest.beatCount; //Only beats from here on.
+    }
+  }
+
+  //Call on the GL thread, once per frame. Hands the newest captured frames to the renderer.
+  public void dispatch() {
+    if (subscriber == null) { return; }
+
+    if (requirements.waveform) {
+      byte[] wave = waveFrames.poll();
+      if (wave != null) {
+        subscriber.updateVisualiserWave(wave);
+      }
+    }
+
+    SpectrumFrame spectrum = spectrumFrames != null ? spectrumFrames.poll() : null;
+    if (spectrum != null) {
+      subscriber.updateSpectrum(spectrum);
+      if (spectrum.beatCount != lastBeatCount) {
+        lastBeatCount = spectrum.beatCount;
+        subscriber.onBeat(spectrum);
+      }
+    }
+  }
+
+  public CaptureRequirements getRequirements() {
+    return requirements;
+  }
+
+  //The current analysis, null while nothing wants a spectrum.
+  public PcmSpectrumEngine getEngine() {
+    return engine;
+  }
+
+  public SpectrumAnalyser getSpectrumAnalyser() {
+    return spectrumAnalyser;
+  }
+
+  //Owned by the analysis thread; read results from the SpectrumFrames instead.
+  public BeatDetector getBeatDetector() {
+    return beatDetector;
+  }
+
+  public TripleBuffer<SpectrumFrame> getSpectrumFrames() {
+    return spectrumFrames;
+  }
 
-          public void onFftDataCapture(Visualizer visualizer, byte[] bytes, int samplingRate) {
-            renderer.updateVisualiserFft(bytes);
-          }
-        }, Visualizer.getMaxCaptureRate() / 2, getWaveform, getFft);  //Choose to get waveform, fft output.
-    visualiser.setEnabled(true); //Enabled only when needed, after setCaptureSize.
+  public TripleBuffer<byte[]> getWaveFrames() {
+    return waveFrames;
   }
-}
\ No newline at end of file
+}
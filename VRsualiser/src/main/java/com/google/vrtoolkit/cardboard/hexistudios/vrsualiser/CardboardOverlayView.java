@@ -75,6 +75,17 @@ public class CardboardOverlayView extends LinearLayout {
     startAnimation(textFadeAnimation);
   }
 
+  //Text that stays up until hideStats(), used for the frame timing readout.
+  public void showStats(String stats) {
+    setText(stats);
+    setTextAlpha(1f);
+  }
+
+  public void hideStats() {
+    setText("");
+    setTextAlpha(0f);
+  }
+
   private abstract class EndAnimationListener implements Animation.AnimationListener {
     @Override public void onAnimationRepeat(Animation animation) {}
     @Override public void onAnimationStart(Animation animation) {}
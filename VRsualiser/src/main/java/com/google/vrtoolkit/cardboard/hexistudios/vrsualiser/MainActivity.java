@@ -33,13 +33,19 @@ import com.google.vrtoolkit.cardboard.CardboardView;
 import com.google.vrtoolkit.cardboard.Eye;
 import com.google.vrtoolkit.cardboard.HeadTransform;
 import com.google.vrtoolkit.cardboard.Viewport;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.AudioSource;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.MicrophoneSource;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SyntheticSource;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.VisualizerSource;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.AndroidGL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.MeshCache;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.StateTrackingGL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.metrics.FrameProfiler;
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.*;
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.*;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 
 import javax.microedition.khronos.egl.EGLConfig;
 
@@ -56,6 +62,14 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
   private static final float YAW_LIMIT = 0.12f;
   private static final float PITCH_LIMIT = 0.12f;
 
+  //How often the timing HUD is refreshed while it is showing.
+  private static final int STATS_INTERVAL_FRAMES = 30;
+
+  //Capture from the microphone rather than whatever is playing.
+  private static final boolean USE_MICROPHONE = false;
+  //For sources that get to choose.
+  private static final int SAMPLE_RATE = 44100;
+
   // We keep the light always position just above the user.
   private static final float[] LIGHT_POS_IN_WORLD_SPACE = new float[]{0.0f, 2.0f, 0.0f, 1.0f};
 
@@ -65,10 +79,28 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
   private float[] headRotation;
   private float floorDepth = 20f;
 
-  private int renderProgram;
+  //Everything drawn goes through this, so repeated state is dropped.
+  private final StateTrackingGL gl = new StateTrackingGL(new AndroidGL());
+  private ShaderRegistry shaders; //Outlives the surface, so shader sources are only read once.
+  private MeshCache meshCache; //Generated meshes, saved to the cache dir and mapped back in.
   private CardboardOverlayView overlayView;
-  private Renderer renderer;
-  private Analyser audioAnalyser;
+  private Renderer renderer; //GL thread only, changes between frames.
+  private RendererPool rendererPool; //Rebuilt with each surface, as meshes live in the GL context.
+  private RenderParams barParams; //Raises bars in the vertex shader, null to do it on the CPU.
+  private int rendererId; //Menu id of the renderer in use.
+  private volatile int requestedRendererId = R.id.test; //Set from the menu, applied in onNewFrame.
+  private Analyser audioAnalyser; //Lives as long as the activity, renderers just subscribe to it.
+
+  private final FrameProfiler profiler = new FrameProfiler();
+  private volatile boolean showStats;
+  private int framesSinceStats;
+  private volatile String statsText;
+  private final Runnable showStatsRunnable = new Runnable() {
+    @Override
+    public void run() {
+      if (showStats) { overlayView.showStats(statsText); }
+    }
+  };
 
 
   /**
@@ -84,37 +116,6 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
     }
   }
 
-  /**
-   * Converts a raw text file, saved as a resource, into an OpenGL ES shader.
-   *
-   * @param type  The type of shader we will be creating.
-   * @param resId The resource ID of the raw text file about to be turned into a shader.
-   * @return The shader object handler.
-   */
-  private int loadGLShader(int type, int resId) {
-    String code = readRawTextFile(resId);
-    int shader = GLES20.glCreateShader(type);
-    GLES20.glShaderSource(shader, code);
-    GLES20.glCompileShader(shader);
-
-    // Get the compilation status.
-    final int[] compileStatus = new int[1];
-    GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
-
-    // If the compilation failed, delete the shader.
-    if (compileStatus[0] == 0) {
-      Log.e(TAG, "Error compiling shader: " + GLES20.glGetShaderInfoLog(shader));
-      GLES20.glDeleteShader(shader);
-      shader = 0;
-    }
-
-    if (shader == 0) {
-      throw new RuntimeException("Error creating shader.");
-    }
-
-    return shader;
-  }
-
   @Override
   public boolean onCreateOptionsMenu(Menu menu) {
     MenuInflater inflater=getMenuInflater();
@@ -125,29 +126,33 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
   @Override //Handles user pressing options on the android three line menu.
   public boolean onOptionsItemSelected(MenuItem item) {
     switch (item.getItemId()) {
-      case R.id.simplebars: changeRenderer(new SimpleBars(renderer.scene.renderParams));
+      case R.id.simplebars:
+      case R.id.circularbars:
+      case R.id.trianglecube2:
+      case R.id.trianglecube4:
+      case R.id.trianglecube8:
+      case R.id.test: changeRenderer(item.getItemId());
         return true;
 
-      case R.id.circularbars: changeRenderer(new CircleBars(renderer.scene.renderParams));
-        return true;
-
-      case R.id.trianglecube2: changeRenderer(new TriangleCube(renderer.scene.renderParams, 1));
-        return true;
-
-      case R.id.trianglecube4: changeRenderer(new TriangleCube(renderer.scene.renderParams, 2));
-        return true;
-
-      case R.id.trianglecube8: changeRenderer(new TriangleCube(renderer.scene.renderParams, 3));
-        return true;
-
-      case R.id.test: changeRenderer(new TestRenderer(renderer.scene.renderParams));
-        return true;
-
-      default: renderer = new TestRenderer(renderer.scene.renderParams);
-        return super.onOptionsItemSelected(item);
+      default: return super.onOptionsItemSelected(item);
     }
   }
 
+  //Builds renderers for the pool, by menu id. Called on the GL thread the first time each is used.
+  private final RendererPool.Factory rendererFactory = new RendererPool.Factory() {
+    @Override
+    public Renderer create(int id, RenderParams renderParams) {
+      switch (id) {
+        case R.id.simplebars: return new SimpleBars(renderParams, barParams);
+        case R.id.circularbars: return new CircleBars(renderParams, barParams);
+        case R.id.trianglecube2: return new TriangleCube(renderParams, meshCache, 1);
+        case R.id.trianglecube4: return new TriangleCube(renderParams, meshCache, 2);
+        case R.id.trianglecube8: return new TriangleCube(renderParams, meshCache, 3);
+        default: return new TestRenderer(renderParams);
+      }
+    }
+  };
+
   /**
    * Sets the view to our CardboardView and initializes the transformation matrices we will use
    * to render our scene.
@@ -173,8 +178,29 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
     headRotation = new float[4];
     headView = new float[16];
 
+    shaders = new ShaderRegistry(getResources(), getCacheDir(), gl);
+    File meshDir = new File(getCacheDir(), "meshes");
+    meshCache = new MeshCache(meshDir.isDirectory() || meshDir.mkdirs() ? meshDir : null);
+    //Captures from here on, whatever is being drawn.
+    audioAnalyser = new Analyser(profiler, createAudioSource());
+
     overlayView = (CardboardOverlayView) findViewById(R.id.overlay);
     overlayView.show3DToast("3D Toast example.");
+
+    profiler.setEnabled(true); //Cheap enough to leave on, the trigger only toggles the readout.
+  }
+
+  //Whatever is playing (or the microphone) where the device allows, else generated audio.
+  private AudioSource createAudioSource() {
+    try {
+      if (USE_MICROPHONE) {
+        return new MicrophoneSource(SAMPLE_RATE, SAMPLE_RATE / 60);
+      }
+      return new VisualizerSource();
+    } catch (RuntimeException e) { //No permission, or no audio effects (e.g emulators).
+      Log.w(TAG, "No audio capture, using synthetic audio", e);
+      return new SyntheticSource(SAMPLE_RATE, SAMPLE_RATE / 60, true);
+    }
   }
 
   @Override
@@ -196,68 +222,64 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
 
     GLES20.glClearColor(0.1f, 0.1f, 0.1f, 0.5f); // Dark background so text shows up well.
 
-    int vertexShader = loadGLShader(GLES20.GL_VERTEX_SHADER, R.raw.basic_vertex);
-    int fragShader = loadGLShader(GLES20.GL_FRAGMENT_SHADER, R.raw.basic_fragment);
-    int passthroughShader = loadGLShader(GLES20.GL_FRAGMENT_SHADER, R.raw.passthrough_fragment);
+    //New context, nothing the tracker or registry knew about survives.
+    gl.invalidate();
+    shaders.onSurfaceCreated();
 
-    renderProgram = GLES20.glCreateProgram();
-    GLES20.glAttachShader(renderProgram, vertexShader);
-    GLES20.glAttachShader(renderProgram, fragShader);
-    GLES20.glLinkProgram(renderProgram);
-    GLES20.glUseProgram(renderProgram);
+    //Linked (or loaded from the binary cache) with its locations looked up.
+    RenderParams renderParams = shaders.get(R.raw.basic_vertex, R.raw.basic_fragment);
+    try {
+      barParams = shaders.get(R.raw.bar_vertex, R.raw.basic_fragment);
+    } catch (RuntimeException e) { //Bars fall back to being raised on the CPU.
+      Log.w(TAG, "No bar program", e);
+      barParams = null;
+    }
 
     checkGLError("Render program init");
 
-    //Set up object to cut down constructor size.
-    RenderParams renderParams = new RenderParams(
-        GLES20.glGetUniformLocation(renderProgram, "u_LightPos"),
-        GLES20.glGetUniformLocation(renderProgram, "u_Model"),
-        GLES20.glGetUniformLocation(renderProgram, "u_MVMatrix"),
-        GLES20.glGetUniformLocation(renderProgram, "u_MVP"),
-        GLES20.glGetAttribLocation(renderProgram, "a_Position"),
-        GLES20.glGetAttribLocation(renderProgram, "a_Normal"),
-        GLES20.glGetAttribLocation(renderProgram, "a_Color"));
-
-    renderer = new TestRenderer(renderParams);  //Init scene.
-    audioAnalyser = new Analyser(renderer); //Init Analyser, must be done after renderer.
-
-    GLES20.glEnableVertexAttribArray(renderer.scene.renderParams.vertexParam);
-    GLES20.glEnableVertexAttribArray(renderer.scene.renderParams.normalParam);
-    GLES20.glEnableVertexAttribArray(renderer.scene.renderParams.colourParam);
+    //One floor, shared by every renderer's scene.
+    Plane floor = new Plane(200, 0, 200, new float[]{-100, -floorDepth, -100}, true, renderParams);
 
-    checkGLError("Render program params");
-
-    //Floor.
-    renderer.scene.add(new Plane(200, 0, 200, new float[]{-100, -floorDepth, -100}, true, renderer.scene.renderParams));
-    checkGLError("floor created");
+    //Old meshes went with the old context. Renderers are built again as they're used.
+    rendererPool = new RendererPool(rendererFactory, renderParams, floor);
+    renderer = null;
+    applyRequestedRenderer();
 
     checkGLError("onSurfaceCreated");
   }
 
-  public void changeRenderer(Renderer renderer) {
-    audioAnalyser.onDestroy();
-    this.renderer = renderer;
-    audioAnalyser = new Analyser(renderer); //Init Analyser, must be done after renderer.
-
-    GLES20.glEnableVertexAttribArray(renderer.scene.renderParams.vertexParam);
-    //GLES20.glEnableVertexAttribArray(renderer.scene.renderParams.normalParam);
-    GLES20.glEnableVertexAttribArray(renderer.scene.renderParams.colourParam);
-
-
-    checkGLError("Render program params");
+  //Safe from any thread, the switch happens at the start of the next frame.
+  public void changeRenderer(int menuId) {
+    requestedRendererId = menuId;
+  }
 
-    //Floor.
-    renderer.scene.add(new Plane(200, 0, 200, new float[]{-100, -floorDepth, -100}, true, renderer.scene.renderParams));
+  //GL thread, between frames. Builds the renderer the first time, after that it's just a swap.
+  private void applyRequestedRenderer() {
+    int requested = requestedRendererId;
+    if (renderer != null && requested == rendererId) { return; }
+
+    long start = System.nanoTime();
+    boolean warm = rendererPool.contains(requested);
+    renderer = rendererPool.get(requested);
+    rendererId = requested;
+    audioAnalyser.setSubscriber(renderer);
+    profiler.setRenderer(renderer.getClass().getSimpleName());
+    Log.i(TAG, "Switched to " + renderer.getClass().getSimpleName() + (warm ? " (warm)" : "")
+        + " in " + (System.nanoTime() - start) / 1000 + "us");
   }
 
   @Override
   public void onPause() {
-    audioAnalyser.onPause(isFinishing());
     super.onPause();
+    //The GL thread has stopped, so it can't reconfigure the analysis or record timings behind
+    //our back.
+    audioAnalyser.onPause(isFinishing());
+    dumpFrameTimings();
   }
 
   @Override
   public void onResume() {
+    audioAnalyser.onResume(); //Before the GL thread is running again.
     super.onResume();
   }
 
@@ -272,27 +294,15 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
     super.onDestroy();
   }
 
-  /**
-   * Converts a raw text file into a string.
-   *
-   * @param resId The resource ID of the raw text file about to be turned into a shader.
-   * @return The context of the text file, or null in case of error.
-   */
-  private String readRawTextFile(int resId) {
-    InputStream inputStream = getResources().openRawResource(resId);
+  //Write the timing histograms out so a session can be compared against another one.
+  private void dumpFrameTimings() {
+    File file = new File(getFilesDir(), "frame_timings.txt");
     try {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-      StringBuilder sb = new StringBuilder();
-      String line;
-      while ((line = reader.readLine()) != null) {
-        sb.append(line).append("\n");
-      }
-      reader.close();
-      return sb.toString();
+      profiler.dumpHistograms(file);
+      Log.i(TAG, "Frame timings written to " + file);
     } catch (IOException e) {
-      e.printStackTrace();
+      Log.w(TAG, "Couldn't write frame timings", e);
     }
-    return null;
   }
 
   /**
@@ -302,6 +312,15 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
    */
   @Override
   public void onNewFrame(HeadTransform headTransform) {
+    long start = profiler.start();
+
+    //The distortion pass has run since the last frame, so the tracked GL state can't be trusted.
+    profiler.countGlCalls(gl.getIssuedCalls(), gl.getElidedCalls());
+    gl.resetCounts();
+    gl.invalidate();
+
+    //Menu switches are picked up here, so a frame is always drawn by one renderer throughout.
+    applyRequestedRenderer();
 
     // Build the camera matrix and apply it to the ModelView.
     Matrix.setLookAtM(camera, 0, 0.0f, 0.0f, CAMERA_Z, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f);
@@ -311,7 +330,21 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
     // Update the 3d audio engine with the most recent head rotation.
     headTransform.getQuaternion(headRotation, 0);
 
+    //Apply the newest audio data here on the GL thread, never while an eye is being drawn.
+    audioAnalyser.dispatch();
+    renderer.onNewFrame(System.nanoTime());
+
+    //Work out what to draw once, both eyes replay it.
+    renderer.scene.compile();
+
     checkGLError("onReadyToDraw");
+    profiler.stop(FrameProfiler.NEW_FRAME, start);
+
+    if (showStats && ++framesSinceStats >= STATS_INTERVAL_FRAMES) {
+      framesSinceStats = 0;
+      statsText = profiler.summary();
+      runOnUiThread(showStatsRunnable);
+    }
   }
 
   /**
@@ -321,6 +354,7 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
    */
   @Override
   public void onDrawEye(Eye eye) {
+    long start = profiler.start();
     checkGLError("Old error caught in onDrawEye");
     GLES20.glEnable(GLES20.GL_DEPTH_TEST);
     GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
@@ -328,17 +362,19 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
     // Apply the eye transformation to the camera.
     Matrix.multiplyMM(renderer.scene.view, 0, eye.getEyeView(), 0, camera, 0);
 
-    // Set the position of the light
-    Matrix.multiplyMV(renderer.scene.lightPosInEyeSpace, 0, renderer.scene.view, 0, LIGHT_POS_IN_WORLD_SPACE, 0);
+    // Set the position of the light, lighting is done in world space.
+    System.arraycopy(LIGHT_POS_IN_WORLD_SPACE, 0, renderer.scene.lightPosInWorldSpace, 0, 4);
 
+    // Write this eye's projection into the scene's own matrix rather than allocating a new one.
+    // Scene combines it with the view once, then each item needs a single multiply for its MVP.
+    eye.getFov().toPerspectiveMatrix(Z_NEAR, Z_FAR, renderer.scene.perspective, 0);
 
-    // Build the ModelView and ModelViewProjection matrices
-    // for calculating cube position and light.
-    renderer.scene.perspective = eye.getPerspective(Z_NEAR, Z_FAR);
-
-    GLES20.glUseProgram(renderProgram);
+    long renderStart = profiler.start();
     renderer.render(); //Render the scene.
+    profiler.stop(FrameProfiler.RENDER, renderStart);
+    profiler.countItems(renderer.scene.getDrawnCount(), renderer.scene.getCulledCount());
     checkGLError("Error rendering, caught at highest level.");
+    profiler.stop(FrameProfiler.DRAW_EYE, start);
   }
 
   @Override
@@ -351,6 +387,14 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
   @Override
   public void onCardboardTrigger() {
     Log.i(TAG, "onCardboardTrigger");
+
+    //Toggle the frame timing readout.
+    showStats = !showStats;
+    if (showStats) {
+      framesSinceStats = STATS_INTERVAL_FRAMES; //Show straight away on the next frame.
+    } else {
+      overlayView.hideStats();
+    }
   }
 
   /**
@@ -0,0 +1,69 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.RenderItem;
+
+/**
+ * The items to draw this frame, in draw order. Built once per frame by Scene.compile() and then
+ * replayed for each eye. Arrays only grow when the scene does, so rebuilding allocates nothing.
+ */
+class RenderCommandList {
+  private RenderItem[] items = new RenderItem[16];
+  private int[] staticIndex = new int[16]; //Item's place in the scene's static list, or -1.
+  //Item's state key in the high 32 bits, its slot in items[] in the low 32, sorted each frame.
+  private long[] keys = new long[16];
+  private int size;
+
+  void clear() {
+    for (int i = 0; i < size; i++) { items[i] = null; }
+    size = 0;
+  }
+
+  void add(RenderItem item, int staticIndex) {
+    if (size == items.length) { grow(); }
+
+    items[size] = item;
+    this.staticIndex[size] = staticIndex;
+    keys[size] = ((long) item.getStateKey() << 32) | size;
+    size++;
+  }
+
+  private void grow() {
+    int capacity = items.length * 2;
+    RenderItem[] newItems = new RenderItem[capacity];
+    int[] newStatic = new int[capacity];
+    long[] newKeys = new long[capacity];
+    System.arraycopy(items, 0, newItems, 0, size);
+    System.arraycopy(staticIndex, 0, newStatic, 0, size);
+    System.arraycopy(keys, 0, newKeys, 0, size);
+    items = newItems;
+    staticIndex = newStatic;
+    keys = newKeys;
+  }
+
+  //Insertion sort. The items are added in the same order every frame, so it is close to linear.
+  void sort() {
+    for (int i = 1; i < size; i++) {
+      long key = keys[i];
+      int j = i - 1;
+      while (j >= 0 && keys[j] > key) {
+        keys[j + 1] = keys[j];
+        j--;
+      }
+      keys[j + 1] = key;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  //The i'th item in draw order.
+  RenderItem item(int i) {
+    return items[(int) keys[i]];
+  }
+
+  //Static list index of the i'th item in draw order, -1 if it isn't static.
+  int staticIndex(int i) {
+    return staticIndex[(int) keys[i]];
+  }
+}
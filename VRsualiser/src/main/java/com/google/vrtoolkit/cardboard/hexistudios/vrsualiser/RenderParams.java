@@ -1,22 +1,49 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser;
 
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+
 /**
  * Just holds each of the renderParam constants to clear up constructors.
  */
 public class RenderParams {
-  public final int lightPosParam, modelLocalParam, modelViewParam,
-      modelViewProjectionParam, normalParam, vertexParam, colourParam;
+  public final int program; //GL program the locations belong to.
+  public final int lightPosParam, modelLocalParam, modelViewProjectionParam, normalParam,
+      vertexParam, colourParam;
+  //Bar program only (bar_vertex), -1 elsewhere: each vertex's bar and the heights of every bar.
+  public final int barParam, bandsParam;
+  public final GL gl;
+  //Distinguishes one set of params (i.e one program) from another when sorting draw calls.
+  public final int id;
+  private static int nextId;
+
+  public RenderParams( int program, int lightPosParam, int modelLocalParam,
+                       int modelViewProjectionParam, int vertexParam, int normalParam,
+                       int colourParam, GL gl) {
+    this(program, lightPosParam, modelLocalParam, modelViewProjectionParam, vertexParam,
+        normalParam, colourParam, -1, -1, gl);
+  }
 
-  public RenderParams( int lightPosParam, int modelLocalParam, int modelViewParam,
+  public RenderParams( int program, int lightPosParam, int modelLocalParam,
                        int modelViewProjectionParam, int vertexParam, int normalParam,
-                       int colourParam) {
+                       int colourParam, int barParam, int bandsParam, GL gl) {
     //Set parameters to local vars.
+    this.program = program;
     this.lightPosParam = lightPosParam;
     this.modelLocalParam = modelLocalParam;
-    this.modelViewParam = modelViewParam;
     this.modelViewProjectionParam = modelViewProjectionParam;
     this.vertexParam = vertexParam;
     this.normalParam = normalParam;
     this.colourParam = colourParam;
+    this.barParam = barParam;
+    this.bandsParam = bandsParam;
+    this.gl = gl;
+    id = nextId++;
+  }
+
+  //Switch to this program, with the attributes every item uses.
+  public void use() {
+    gl.glUseProgram(program);
+    gl.glEnableVertexAttribArray(vertexParam);
+    gl.glEnableVertexAttribArray(colourParam);
   }
 }
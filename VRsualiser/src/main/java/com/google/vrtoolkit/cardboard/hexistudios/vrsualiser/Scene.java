@@ -1,34 +1,146 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser;
 
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.Frustum;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.MatrixMath;
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.RenderItem;
 
 import java.util.ArrayList;
 
 /**
  * Holds an array of RenderItems to be drawn as well as the variables needed to do so.
+ * Once a frame compile() records what to draw, sorted so items sharing GL state are together,
+ * and redraw() replays that for each eye with only the eye's matrices and culling changing.
+ * Items outside the current eye's view frustum are skipped before any GL calls are made.
+ * Each item's program is switched to as it comes up, which thanks to the sort is once per
+ * program per eye.
  */
 public class Scene {
+  //Fewer static items than this are just tested one by one.
+  private static final int BVH_MIN_ITEMS = 8;
+
   private ArrayList<RenderItem> renderArray = new ArrayList<RenderItem>();
-  public float[] lightPosInEyeSpace = new float[4], view, perspective;
+  private ArrayList<RenderItem> dynamicItems = new ArrayList<RenderItem>();
+  private ArrayList<RenderItem> staticItems = new ArrayList<RenderItem>();
+  private StaticBvh staticTree; //Rebuilt lazily after a static item is added.
+  private int[] staticVisible = new int[0]; //Eye stamp of the last eye each static item was seen by.
+  private int eyeStamp;
+  public float[] lightPosInWorldSpace = new float[4], view, perspective;
   public RenderParams renderParams;
 
+  private final RenderCommandList commands = new RenderCommandList();
+  private boolean compiled;
+
+  private final float[] viewProjection = new float[16], modelViewProjection = new float[16];
+  private final Frustum frustum = new Frustum();
+  private boolean culling = true, hierarchical = true;
+  private int drawnCount, culledCount;
+
   public Scene(RenderParams renderParams) {
     view = new float[16];
+    perspective = new float[16]; //Filled in place for each eye, never reallocated.
     this.renderParams = renderParams;
   }
 
   //Add item to array for rendering.
   public void add(RenderItem item) {
     renderArray.add(item);
+    dynamicItems.add(item);
+    compiled = false;
   }
 
+  //Add an item that will never move or change shape, so it can go in the BVH.
+  public void addStatic(RenderItem item) {
+    renderArray.add(item);
+    staticItems.add(item);
+    staticTree = null;
+    compiled = false;
+  }
+
+  //Record this frame's draw list, call once a frame before the eyes are drawn (from onNewFrame).
+  public void compile() {
+    commands.clear();
+    for (int i = 0; i < staticItems.size(); i++) {
+      RenderItem item = staticItems.get(i);
+      if (item.isVisible()) { commands.add(item, i); }
+    }
+    for (int i = 0; i < dynamicItems.size(); i++) {
+      RenderItem item = dynamicItems.get(i);
+      if (item.isVisible()) { commands.add(item, -1); }
+    }
+    commands.sort();
+    compiled = true;
+  }
+
+  /**
+   * Draw the compiled list for one eye. This replays whatever compile() last recorded, so it has
+   * to be called every frame; only a list never compiled, or out of date after add(), is
+   * compiled here.
+   */
   public void redraw() {
-    for (RenderItem item : renderArray) {
-     item.redraw(lightPosInEyeSpace, view, perspective);
+    if (!compiled) { compile(); }
+
+    drawnCount = 0;
+    culledCount = 0;
+
+    //Shared by every item this eye, which then only needs viewProjection x model.
+    MatrixMath.multiplyMM(viewProjection, 0, perspective, 0, view, 0);
+
+    boolean useTree = culling && hierarchical && staticItems.size() >= BVH_MIN_ITEMS;
+    if (culling) {
+      frustum.set(viewProjection, 0);
+    }
+    if (useTree) {
+      if (staticTree == null) {
+        staticTree = new StaticBvh(staticItems);
+        staticVisible = new int[staticItems.size()];
+      }
+      staticTree.markVisible(frustum, staticVisible, ++eyeStamp);
+    }
+
+    RenderParams bound = null;
+    for (int i = 0; i < commands.size(); i++) {
+      RenderItem item = commands.item(i);
+
+      if (culling) {
+        int staticIndex = commands.staticIndex(i);
+        boolean inView = useTree && staticIndex >= 0
+            ? staticVisible[staticIndex] == eyeStamp
+            : frustum.intersects(item.getWorldBounds());
+        if (!inView) {
+          culledCount++;
+          continue;
+        }
+      }
+
+      if (item.getRenderParams() != bound) {
+        bound = item.getRenderParams();
+        bound.use();
+      }
+      MatrixMath.multiplyMM(modelViewProjection, 0, viewProjection, 0, item.getModelLocal(), 0);
+      item.draw(lightPosInWorldSpace, modelViewProjection);
+      drawnCount++;
     }
   }
 
   public ArrayList<RenderItem> getRenderArray() {
     return renderArray;
   }
+
+  public void setCulling(boolean culling) {
+    this.culling = culling;
+  }
+
+  //Use a BVH for the static items rather than testing each one.
+  public void setHierarchical(boolean hierarchical) {
+    this.hierarchical = hierarchical;
+  }
+
+  //Items drawn and culled by the last redraw().
+  public int getDrawnCount() {
+    return drawnCount;
+  }
+
+  public int getCulledCount() {
+    return culledCount;
+  }
 }
@@ -0,0 +1,277 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser;
+
+import android.content.res.Resources;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+import android.util.Log;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+/**
+ * Builds shader programs from raw resources and hands out a RenderParams for each, with its
+ * uniform and attribute locations already looked up.
+ *
+ * Sources are read once and kept for the life of the registry. Linked programs are kept until
+ * the GL context goes (onSurfaceCreated). Where the driver supports it (GLES 3, API 18+) the
+ * linked binary is also saved to disk, keyed by a hash of the sources and the driver, so the next
+ * surface or app start can skip compiling and linking entirely. Anything going wrong with a
+ * cached binary just falls back to compiling from source.
+ */
+public class ShaderRegistry {
+  private static final String TAG = "ShaderRegistry";
+  private static final int BINARY_MAGIC = 0x56525342; //"VRSB"
+
+  private final Resources resources;
+  private final File cacheDir;
+  private final GL gl;
+
+  private final HashMap<Integer, String> sources = new HashMap<Integer, String>();
+  private final HashMap<Long, RenderParams> programs = new HashMap<Long, RenderParams>();
+  private boolean binariesSupported;
+  private String driver = "";
+
+  public ShaderRegistry(Resources resources, File cacheDir, GL gl) {
+    this.resources = resources;
+    this.cacheDir = cacheDir;
+    this.gl = gl;
+  }
+
+  /**
+   * Call at the start of onSurfaceCreated. Programs from the old context are gone, and the
+   * driver (and so whether binaries can be cached) is only known once there is a context.
+   */
+  public void onSurfaceCreated() {
+    programs.clear();
+
+    String version = GLES20.glGetString(GLES20.GL_VERSION);
+    driver = GLES20.glGetString(GLES20.GL_RENDERER) + "|" + version;
+
+    binariesSupported = false;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+        && version != null && version.startsWith("OpenGL ES 3")) {
+      int[] formats = new int[1];
+      GLES20.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, formats, 0);
+      binariesSupported = formats[0] > 0;
+    }
+    Log.i(TAG, "Program binary cache " + (binariesSupported ? "enabled" : "unsupported")
+        + " for " + driver);
+  }
+
+  //Program built from the two raw resources, linking (or loading) it the first time it's asked for.
+  public RenderParams get(int vertexResId, int fragmentResId) {
+    long key = ((long) vertexResId << 32) | (fragmentResId & 0xFFFFFFFFL);
+    RenderParams params = programs.get(key);
+    if (params == null) {
+      long start = System.nanoTime();
+      int program = loadProgram(source(vertexResId), source(fragmentResId));
+      params = new RenderParams(program,
+          GLES20.glGetUniformLocation(program, "u_LightPos"),
+          GLES20.glGetUniformLocation(program, "u_Model"),
+          GLES20.glGetUniformLocation(program, "u_MVP"),
+          GLES20.glGetAttribLocation(program, "a_Position"),
+          GLES20.glGetAttribLocation(program, "a_Normal"),
+          GLES20.glGetAttribLocation(program, "a_Color"),
+          GLES20.glGetAttribLocation(program, "a_Bar"),
+          GLES20.glGetUniformLocation(program, "u_Bands"),
+          gl);
+      programs.put(key, params);
+      Log.i(TAG, "Program " + program + " ready in " + (System.nanoTime() - start) / 1000 + "us");
+    }
+    return params;
+  }
+
+  private String source(int resId) {
+    String source = sources.get(resId);
+    if (source == null) {
+      source = readRawResource(resId);
+      sources.put(resId, source);
+    }
+    return source;
+  }
+
+  private String readRawResource(int resId) {
+    InputStream in = resources.openRawResource(resId);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] chunk = new byte[4096];
+      int read;
+      while ((read = in.read(chunk)) != -1) {
+        out.write(chunk, 0, read);
+      }
+      return out.toString("UTF-8");
+    } catch (IOException e) {
+      throw new RuntimeException("Couldn't read shader resource " + resId, e);
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        Log.w(TAG, "Couldn't close shader resource " + resId, e);
+      }
+    }
+  }
+
+  private int loadProgram(String vertexSource, String fragmentSource) {
+    File cacheFile = binariesSupported ? cacheFile(vertexSource, fragmentSource) : null;
+
+    if (cacheFile != null && cacheFile.exists()) {
+      int program = loadBinary(cacheFile);
+      if (program != 0) { return program; }
+      //Driver update or a bad file, either way rebuild it.
+      if (!cacheFile.delete()) { Log.w(TAG, "Couldn't delete " + cacheFile); }
+    }
+
+    int program = GLES20.glCreateProgram();
+    int vertexShader = compileShader(GLES20.GL_VERTEX_SHADER, vertexSource);
+    int fragmentShader = compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+    GLES20.glAttachShader(program, vertexShader);
+    GLES20.glAttachShader(program, fragmentShader);
+    if (cacheFile != null) {
+      GLES30.glProgramParameteri(program, GLES30.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GLES20.GL_TRUE);
+    }
+    GLES20.glLinkProgram(program);
+
+    //The program keeps what it needs, the shader objects can go.
+    GLES20.glDetachShader(program, vertexShader);
+    GLES20.glDetachShader(program, fragmentShader);
+    GLES20.glDeleteShader(vertexShader);
+    GLES20.glDeleteShader(fragmentShader);
+
+    int[] status = new int[1];
+    GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+    if (status[0] == 0) {
+      String log = GLES20.glGetProgramInfoLog(program);
+      GLES20.glDeleteProgram(program);
+      Log.e(TAG, "Error linking program: " + log);
+      throw new RuntimeException("Error linking program.");
+    }
+
+    if (cacheFile != null) { saveBinary(program, cacheFile); }
+    return program;
+  }
+
+  private int compileShader(int type, String source) {
+    int shader = GLES20.glCreateShader(type);
+    GLES20.glShaderSource(shader, source);
+    GLES20.glCompileShader(shader);
+
+    int[] status = new int[1];
+    GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+    if (status[0] == 0) {
+      Log.e(TAG, "Error compiling shader: " + GLES20.glGetShaderInfoLog(shader));
+      GLES20.glDeleteShader(shader);
+      throw new RuntimeException("Error creating shader.");
+    }
+    return shader;
+  }
+
+  //Returns 0 if the binary couldn't be used.
+  private int loadBinary(File file) {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new FileInputStream(file));
+      if (in.readInt() != BINARY_MAGIC) { return 0; }
+      int format = in.readInt();
+      int length = in.readInt();
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+
+      ByteBuffer binary = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+      binary.put(bytes).position(0);
+
+      int program = GLES20.glCreateProgram();
+      GLES30.glProgramBinary(program, format, binary, length);
+
+      int[] status = new int[1];
+      GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+      if (status[0] == 0) {
+        GLES20.glDeleteProgram(program);
+        GLES20.glGetError(); //An unknown format raises GL_INVALID_ENUM, don't leave it lying around.
+        Log.i(TAG, "Cached program binary rejected, recompiling");
+        return 0;
+      }
+      return program;
+    } catch (IOException e) {
+      Log.w(TAG, "Couldn't read cached program " + file, e);
+      return 0;
+    } finally {
+      closeQuietly(in);
+    }
+  }
+
+  private void saveBinary(int program, File file) {
+    int[] length = new int[1];
+    GLES20.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+    if (length[0] <= 0) { return; }
+
+    ByteBuffer binary = ByteBuffer.allocateDirect(length[0]).order(ByteOrder.nativeOrder());
+    IntBuffer written = IntBuffer.allocate(1);
+    IntBuffer format = IntBuffer.allocate(1);
+    GLES30.glGetProgramBinary(program, length[0], written, format, binary);
+
+    byte[] bytes = new byte[written.get(0)];
+    binary.position(0);
+    binary.get(bytes);
+
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new FileOutputStream(file));
+      out.writeInt(BINARY_MAGIC);
+      out.writeInt(format.get(0));
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } catch (IOException e) {
+      Log.w(TAG, "Couldn't cache program binary " + file, e);
+      if (!file.delete()) { Log.w(TAG, "Couldn't delete " + file); }
+    } finally {
+      closeQuietly(out);
+    }
+  }
+
+  //One file per source pair and driver, so an updated driver or shader never loads a stale binary.
+  private File cacheFile(String vertexSource, String fragmentSource) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(vertexSource.getBytes("UTF-8"));
+      digest.update((byte) 0);
+      digest.update(fragmentSource.getBytes("UTF-8"));
+      digest.update((byte) 0);
+      digest.update(driver.getBytes("UTF-8"));
+
+      StringBuilder name = new StringBuilder("program_");
+      for (byte b : digest.digest()) {
+        name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return new File(cacheDir, name.append(".bin").toString());
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable == null) { return; }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      Log.w(TAG, "Couldn't close " + closeable, e);
+    }
+  }
+}
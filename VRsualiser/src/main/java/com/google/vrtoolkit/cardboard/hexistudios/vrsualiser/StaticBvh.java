@@ -0,0 +1,143 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.Bounds;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.Frustum;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.RenderItem;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounding volume hierarchy over RenderItems that never move or change shape, so whole groups
+ * can be culled with one frustum test. Built once by splitting at the median along the longest
+ * axis; traversal uses a preallocated stack and allocates nothing. Rather than drawing, it marks
+ * which items are visible so Scene can draw them in its own (sorted) order.
+ */
+class StaticBvh {
+  private static final int LEAF_SIZE = 4;
+  private static final int MAX_DEPTH = 64;
+
+  private final RenderItem[] items;
+  private final int[] itemIds; //Each item's index in the list the tree was built from.
+  private final Bounds[] nodeBounds;
+  //Leaves have count > 0 and cover items[start, start + count). Inner nodes have their left child
+  //straight after them and their right child at start.
+  private final int[] nodeStart, nodeCount;
+  private int nodeTotal;
+
+  //Node index * 2, plus 1 if the node is already known to be fully inside the frustum.
+  private final int[] stack = new int[MAX_DEPTH * 2];
+
+  StaticBvh(List<RenderItem> staticItems) {
+    items = staticItems.toArray(new RenderItem[staticItems.size()]);
+    itemIds = new int[items.length];
+    for (int i = 0; i < itemIds.length; i++) { itemIds[i] = i; }
+
+    int maxNodes = Math.max(1, 2 * items.length);
+    nodeBounds = new Bounds[maxNodes];
+    nodeStart = new int[maxNodes];
+    nodeCount = new int[maxNodes];
+
+    if (items.length > 0) { build(0, items.length); }
+  }
+
+  private int build(int start, int end) {
+    int node = nodeTotal++;
+    Bounds bounds = new Bounds();
+    Bounds centres = new Bounds();
+    for (int i = start; i < end; i++) {
+      Bounds b = items[i].getWorldBounds();
+      bounds.grow(b);
+      centres.grow(b.centreX(), b.centreY(), b.centreZ());
+    }
+    nodeBounds[node] = bounds;
+
+    if (end - start <= LEAF_SIZE) {
+      nodeStart[node] = start;
+      nodeCount[node] = end - start;
+      return node;
+    }
+
+    //Sort along the axis the item centres are most spread over, then split in half.
+    float dx = centres.maxX - centres.minX, dy = centres.maxY - centres.minY,
+        dz = centres.maxZ - centres.minZ;
+    int axis = dx >= dy && dx >= dz ? 0 : (dy >= dz ? 1 : 2);
+    sort(start, end, axis);
+
+    int mid = (start + end) >>> 1;
+    build(start, mid);
+    nodeStart[node] = build(mid, end);
+    nodeCount[node] = 0;
+    return node;
+  }
+
+  //Sort items (and their ids with them) by centre along the axis. Only used while building.
+  private void sort(int start, int end, final int axis) {
+    Integer[] order = new Integer[end - start];
+    for (int i = 0; i < order.length; i++) { order[i] = start + i; }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Float.compare(centre(items[a].getWorldBounds(), axis),
+            centre(items[b].getWorldBounds(), axis));
+      }
+    });
+
+    RenderItem[] sortedItems = new RenderItem[order.length];
+    int[] sortedIds = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedItems[i] = items[order[i]];
+      sortedIds[i] = itemIds[order[i]];
+    }
+    System.arraycopy(sortedItems, 0, items, start, order.length);
+    System.arraycopy(sortedIds, 0, itemIds, start, order.length);
+  }
+
+  private static float centre(Bounds b, int axis) {
+    return axis == 0 ? b.centreX() : (axis == 1 ? b.centreY() : b.centreZ());
+  }
+
+  /**
+   * Sets visible[id] = stamp for every item in a node touching the frustum, where id is the
+   * item's index in the list the tree was built from. Returns how many were marked.
+   */
+  int markVisible(Frustum frustum, int[] visible, int stamp) {
+    if (items.length == 0) { return 0; }
+
+    int marked = 0;
+    int top = 0;
+    stack[top++] = 0;
+
+    while (top > 0) {
+      int entry = stack[--top];
+      int node = entry >> 1;
+      boolean inside = (entry & 1) != 0;
+
+      if (!inside) {
+        int result = frustum.classify(nodeBounds[node]);
+        if (result == Frustum.OUTSIDE) { continue; }
+        inside = result == Frustum.INSIDE;
+      }
+
+      if (nodeCount[node] > 0) {
+        for (int i = nodeStart[node]; i < nodeStart[node] + nodeCount[node]; i++) {
+          if (inside || frustum.intersects(items[i].getWorldBounds())) {
+            visible[itemIds[i]] = stamp;
+            marked++;
+          }
+        }
+      } else {
+        int flag = inside ? 1 : 0;
+        stack[top++] = nodeStart[node] * 2 + flag;
+        stack[top++] = (node + 1) * 2 + flag;
+      }
+    }
+
+    return marked;
+  }
+
+  int size() {
+    return items.length;
+  }
+}
@@ -0,0 +1,207 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import android.os.Process;
+import android.util.Log;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.metrics.FrameProfiler;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs an AudioSource on a capture thread at urgent audio priority, which does nothing but move
+ * samples into a PcmRingBuffer, so a slow FFT can never make it miss a read. An analysis thread
+ * drains the ring into a PcmSpectrumEngine and publishes the latest waveform, in the Visualizer's
+ * unsigned 8 bit format, when they're wanted; see configure(). Nothing is allocated per chunk.
+ * While neither is wanted the source is paused and both threads sleep until configure() is
+ * called again.
+ */
+public class AudioCapture {
+  private static final String TAG = "AudioCapture";
+  //Longest the analysis thread sleeps if it somehow misses being woken.
+  private static final long ANALYSIS_WAIT_NANOS = 10000000L;
+
+  private final AudioSource source;
+  private final PcmRingBuffer ring;
+  private final TripleBuffer<byte[]> waveFrames;
+  private final FrameProfiler profiler;
+  private final short[] chunk;
+  private final byte[] waveHistory; //Circular, newest sample at wavePos - 1.
+  private int wavePos;
+
+  //Set from the GL thread, picked up by the analysis thread at its next chunk.
+  private volatile PcmSpectrumEngine engine;
+  private volatile boolean waveEnabled;
+  private volatile int blockSize; //Asked of the source, 0 to leave it as it is.
+  private volatile boolean running;
+  private volatile long lastReadNanos; //When the source last delivered: the newest sample's time.
+  private volatile Thread captureThread, analysisThread; //Woken by configure() from any thread.
+
+  /**
+   * @param maxChunk  Largest hop any engine passed to configure() will have.
+   */
+  public AudioCapture(AudioSource source, PcmRingBuffer ring, TripleBuffer<byte[]> waveFrames,
+                      int waveSize, int maxChunk, FrameProfiler profiler) {
+    this.source = source;
+    this.ring = ring;
+    this.waveFrames = waveFrames;
+    this.profiler = profiler;
+    chunk = new short[maxChunk];
+    waveHistory = new byte[waveSize];
+  }
+
+  /**
+   * What to do with the audio, from any thread: feed it to engine (null for
+   * no spectrum), and publish the waveform or not, reading the source in blocks of about
+   * blockSize samples. The engine then belongs to the analysis thread.
+   */
+  public void configure(PcmSpectrumEngine engine, boolean waveEnabled, int blockSize) {
+    this.engine = engine;
+    this.waveEnabled = waveEnabled;
+    this.blockSize = blockSize;
+    LockSupport.unpark(captureThread);
+    LockSupport.unpark(analysisThread);
+  }
+
+  private boolean isWanted() {
+    return engine != null || waveEnabled;
+  }
+
+  public void start() {
+    if (running) { return; }
+    running = true;
+
+    analysisThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        analyse();
+      }
+    }, TAG + "-analysis");
+    captureThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        capture();
+      }
+    }, TAG);
+    analysisThread.start();
+    captureThread.start();
+  }
+
+  //Stops and waits for both threads. The source is stopped (and released) by the capture thread.
+  public void stop() {
+    running = false;
+    LockSupport.unpark(captureThread);
+    LockSupport.unpark(analysisThread);
+    join(captureThread);
+    join(analysisThread);
+    captureThread = null;
+    analysisThread = null;
+  }
+
+  public long getDroppedSamples() {
+    return ring.getDropped();
+  }
+
+  private static void join(Thread thread) {
+    if (thread == null) { return; }
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void capture() {
+    Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+    boolean started = false;
+    int appliedBlockSize = 0;
+    try {
+      while (running) {
+        if (!isWanted()) {
+          //Nothing needs audio, so don't capture it just to throw it away.
+          if (started) {
+            source.pause();
+            started = false;
+          }
+          LockSupport.park(this);
+          continue;
+        }
+
+        //Sources can only change block size while they're not delivering.
+        int wantedBlockSize = blockSize;
+        if (wantedBlockSize > 0 && wantedBlockSize != appliedBlockSize) {
+          if (started) {
+            source.pause();
+            started = false;
+          }
+          source.setBlockSize(wantedBlockSize);
+          appliedBlockSize = wantedBlockSize;
+        }
+        if (!started) {
+          source.start();
+          started = true;
+        }
+
+        int read = source.read(ring);
+        if (read < 0) {
+          Log.e(TAG, "Audio source failed: " + read);
+          break;
+        }
+        lastReadNanos = System.nanoTime();
+        LockSupport.unpark(analysisThread);
+      }
+    } finally {
+      source.stop();
+    }
+  }
+
+  private void analyse() {
+    Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+    int sampleRate = source.getSampleRate();
+    while (running) {
+      PcmSpectrumEngine engine = this.engine;
+      int chunkSize = engine != null ? Math.min(chunk.length, engine.getHopSize()) : chunk.length;
+
+      long newestNanos = lastReadNanos;
+      int read = ring.read(chunk, 0, chunkSize);
+      if (read == 0) {
+        if (isWanted()) {
+          LockSupport.parkNanos(this, ANALYSIS_WAIT_NANOS);
+        } else {
+          LockSupport.park(this); //Until configure() or stop().
+        }
+        continue;
+      }
+      //Whatever is still in the ring came after this chunk. If the capture thread wrote more
+      //since newestNanos was read this comes out a little early, which the renderers smooth over.
+      long endNanos = newestNanos - ring.available() * 1000000000L / sampleRate;
+
+      if (engine != null) {
+        long start = profiler.start();
+        engine.write(chunk, 0, read, endNanos);
+        profiler.stop(FrameProfiler.FFT_CAPTURE, start);
+      }
+
+      if (waveEnabled) {
+        long start = profiler.start();
+        publishWave(read);
+        profiler.stop(FrameProfiler.WAVE_CAPTURE, start);
+      }
+    }
+  }
+
+  private void publishWave(int count) {
+    for (int i = 0; i < count; i++) {
+      waveHistory[wavePos] = (byte) ((chunk[i] >> 8) + 128);
+      wavePos = wavePos + 1 == waveHistory.length ? 0 : wavePos + 1;
+    }
+
+    //Oldest first, as the Visualizer delivers it.
+    byte[] slot = waveFrames.beginWrite();
+    int tail = waveHistory.length - wavePos;
+    System.arraycopy(waveHistory, wavePos, slot, 0, Math.min(tail, slot.length));
+    if (slot.length > tail) {
+      System.arraycopy(waveHistory, 0, slot, tail, Math.min(wavePos, slot.length - tail));
+    }
+    waveFrames.publish();
+  }
+}
@@ -0,0 +1,35 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+/**
+ * Somewhere mono 16 bit PCM comes from: the output mix, the microphone, or generated.
+ * Driven by a single capture thread: start(), then read() in a loop, then stop(), with pause()
+ * and start() again in between while nobody needs audio. Sources read into buffers they own and
+ * reuse, so nothing is allocated per read.
+ */
+public interface AudioSource {
+  int getSampleRate();
+
+  //Roughly how many samples each read() delivers.
+  int getBlockSize();
+
+  /**
+   * Asks for blocks of about this many samples, at most the size the source started with.
+   * Only while not started (or paused). Returns the block size now in use.
+   */
+  int setBlockSize(int samples);
+
+  //Starts delivering, or carries on after pause().
+  void start();
+
+  //Stops delivering, keeping hold of everything, until start() is called again.
+  void pause();
+
+  /**
+   * Blocks until the next block is ready and writes it into ring.
+   * Returns the samples written, or a negative value if the source has failed and should stop.
+   */
+  int read(PcmRingBuffer ring);
+
+  //Stops and releases whatever the source holds. It is not restarted afterwards.
+  void stop();
+}
@@ -0,0 +1,282 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import java.util.Arrays;
+
+/**
+ * Streaming onset and beat tracking over the frames from a PcmSpectrumEngine.
+ *
+ * Onsets: spectral flux (how much louder the spectrum got since the last frame) in a few log
+ * spaced bands. A band has an onset when its flux beats the median of its last half second by a
+ * margin, so the threshold follows the music. The onset envelope is each band's flux above its
+ * median, summed, and is thresholded against its own running median for whole spectrum onsets.
+ *
+ * Beats: onset strengths are autocorrelated over the lags of 60-200 BPM, decaying so the last
+ * few seconds count most. The strongest lag is the beat period. A phase runs at that period and
+ * is pulled towards each onset, and a beat is counted each time it wraps, so beats land with the
+ * onsets rather than after the onset that confirms them. Both trail the audio by about half an
+ * FFT window, the time a hit takes to dominate the window.
+ *
+ * Results go into the SpectrumFrame being published. Everything is allocated up front and each
+ * frame costs the same, so it runs on the analysis thread; not thread safe.
+ */
+public class BeatDetector {
+  public static final int BANDS = 6;
+  private static final float LOW_HZ = 40, HIGH_HZ = 12000;
+  private static final float MIN_BPM = 60, MAX_BPM = 200;
+  //Tempos near here are favoured, and a longer lag has to beat a shorter one by a margin, as a
+  //period's multiples score as well as the period itself.
+  private static final float PREFERRED_BPM = 120, PREFERENCE_OCTAVES = 1.5f;
+  private static final float LONGER_LAG_MARGIN = 1.05f;
+
+  private static final float MEDIAN_SECONDS = 0.5f;
+  //A band onset is a rise of more than its median change * ratio + offset, in dB.
+  private static final float BAND_THRESHOLD_RATIO = 3f, BAND_THRESHOLD_OFFSET = 1f;
+  //And a whole spectrum onset is the envelope over its median * ratio + offset.
+  private static final float ENVELOPE_THRESHOLD_RATIO = 1.5f, ENVELOPE_THRESHOLD_OFFSET = 3f;
+  private static final float MIN_ONSET_GAP_SECONDS = 0.1f;
+  //How long the autocorrelation remembers.
+  private static final float TEMPO_SECONDS = 4f;
+  //How far the phase moves towards an onset: all the way with no tempo, less once locked on.
+  private static final float MAX_PHASE_GAIN = 1f, MIN_PHASE_GAIN = 0.15f;
+  //Below this no beats are counted; the phase still runs.
+  private static final float MIN_BEAT_CONFIDENCE = 0.2f;
+
+  private final float frameRate;
+  private final int[] bandStart; //Band b is bins bandStart[b] to bandStart[b + 1] - 1.
+  private final float[] previousDb; //Per band.
+  private final MovingMedian[] bandMedians;
+  private final MovingMedian envelopeMedian;
+  private final int[] bandSinceOnset;
+  private final int minOnsetGap;
+
+  private final int minLag, maxLag;
+  private final float[] envelopeHistory; //Circular, maxLag + 2 frames.
+  private final float[] autocorrelation; //Indexed by lag, minLag - 1 to maxLag + 1 kept.
+  private final float[] lagPreference;
+  private final float decay;
+  private float energy;
+  private int historyPos;
+
+  private boolean primed;
+  private int sinceOnset;
+  private float period, phase, confidence;
+  private long beatCount, onsetCount;
+
+  /**
+   * @param bins       Bins per frame, DC first.
+   * @param binHz      Width of a bin in Hz.
+   * @param frameRate  Frames per second.
+   */
+  public BeatDetector(int bins, float binHz, float frameRate) {
+    this.frameRate = frameRate;
+
+    bandStart = new int[BANDS + 1];
+    for (int b = 0; b <= BANDS; b++) {
+      float hz = LOW_HZ * (float) Math.pow(HIGH_HZ / LOW_HZ, (float) b / BANDS);
+      bandStart[b] = Math.min(bins, Math.max(1, Math.round(hz / binHz)));
+    }
+    for (int b = 1; b <= BANDS; b++) { //At least a bin each, even for tiny FFTs.
+      bandStart[b] = Math.min(bins, Math.max(bandStart[b], bandStart[b - 1] + 1));
+    }
+    previousDb = new float[BANDS];
+
+    int medianWindow = Math.max(3, Math.round(frameRate * MEDIAN_SECONDS));
+    bandMedians = new MovingMedian[BANDS];
+    for (int b = 0; b < BANDS; b++) {
+      bandMedians[b] = new MovingMedian(medianWindow);
+    }
+    envelopeMedian = new MovingMedian(medianWindow);
+    bandSinceOnset = new int[BANDS];
+    minOnsetGap = Math.max(1, Math.round(frameRate * MIN_ONSET_GAP_SECONDS));
+
+    minLag = Math.max(2, (int) Math.floor(frameRate * 60 / MAX_BPM));
+    maxLag = Math.max(minLag + 2, (int) Math.ceil(frameRate * 60 / MIN_BPM));
+    envelopeHistory = new float[maxLag + 2];
+    autocorrelation = new float[maxLag + 2];
+    lagPreference = new float[maxLag + 2];
+    for (int lag = minLag; lag <= maxLag; lag++) {
+      double octaves = Math.log(frameRate * 60 / lag / PREFERRED_BPM) / Math.log(2);
+      lagPreference[lag] = (float) Math.exp(-0.5 * sq(octaves / PREFERENCE_OCTAVES));
+    }
+    decay = (float) Math.exp(-1 / (frameRate * TEMPO_SECONDS));
+  }
+
+  private static double sq(double x) {
+    return x * x;
+  }
+
+  public float getFrameRate() {
+    return frameRate;
+  }
+
+  //0 until a tempo has been found.
+  public float getTempoBpm() {
+    return period > 0 ? frameRate * 60 / period : 0;
+  }
+
+  public float getConfidence() {
+    return confidence;
+  }
+
+  public float getPhase() {
+    return phase;
+  }
+
+  public long getBeatCount() {
+    return beatCount;
+  }
+
+  public long getOnsetCount() {
+    return onsetCount;
+  }
+
+  //Forget the tempo and history, e.g when the audio source changes.
+  public void reset() {
+    primed = false;
+    for (MovingMedian median : bandMedians) { median.clear(); }
+    envelopeMedian.clear();
+    Arrays.fill(envelopeHistory, 0);
+    Arrays.fill(autocorrelation, 0);
+    energy = 0;
+    period = 0;
+    phase = 0;
+    confidence = 0;
+  }
+
+  /**
+   * Analyse a frame's spectrum and fill in its beat fields.
+   *
+   * @param power  Power of each bin, scaled so a full scale sine is 1; what frame.db was made from.
+   */
+  public void process(SpectrumFrame frame, float[] power, int bins) {
+    //Flux per band: how much its total power rose, in dB, since the last frame.
+    int onsetBands = 0;
+    float envelope = 0;
+    for (int b = 0; b < BANDS; b++) {
+      int from = Math.min(bandStart[b], bins), to = Math.min(bandStart[b + 1], bins);
+      float bandPower = 0;
+      for (int k = from; k < to; k++) {
+        bandPower += power[k];
+      }
+      float bandDb = (float) (10 * Math.log10(bandPower + 1e-12f));
+      float change = primed ? bandDb - previousDb[b] : 0;
+      float flux = Math.max(0, change);
+      previousDb[b] = bandDb;
+
+      //Against how much the band usually moves, either way, so a narrow band that jitters
+      //a lot needs a bigger jump than a wide steady one.
+      MovingMedian median = bandMedians[b];
+      float usual = median.median();
+      median.push(Math.abs(change));
+      envelope += Math.max(0, flux - usual) / (usual + BAND_THRESHOLD_OFFSET);
+
+      bandSinceOnset[b]++;
+      if (flux > usual * BAND_THRESHOLD_RATIO + BAND_THRESHOLD_OFFSET
+          && bandSinceOnset[b] >= minOnsetGap) {
+        onsetBands |= 1 << b;
+        bandSinceOnset[b] = 0;
+      }
+    }
+    primed = true;
+
+    //Whole spectrum onset, against the envelope's own running median.
+    float threshold = envelopeMedian.median();
+    envelopeMedian.push(envelope);
+    float strength = Math.max(0, envelope - threshold);
+    sinceOnset++;
+    boolean onset = envelope > threshold * ENVELOPE_THRESHOLD_RATIO + ENVELOPE_THRESHOLD_OFFSET
+        && sinceOnset >= minOnsetGap;
+    if (onset) {
+      sinceOnset = 0;
+      onsetCount++;
+    }
+
+    //Only onsets go into the tempo estimate. The envelope between them is mostly noise,
+    //which blurs the autocorrelation.
+    updateTempo(onset ? strength : 0);
+    boolean beat = updatePhase(onset);
+
+    frame.onsetBands = onsetBands;
+    frame.onsetStrength = onset ? strength : 0;
+    frame.onsetCount = onsetCount;
+    frame.beat = beat;
+    frame.beatCount = beatCount;
+    frame.beatPhase = phase;
+    frame.beatConfidence = confidence;
+    frame.tempoBpm = getTempoBpm();
+  }
+
+  //Decaying autocorrelation of the envelope: one multiply-add per lag.
+  private void updateTempo(float strength) {
+    envelopeHistory[historyPos] = strength;
+    energy = energy * decay + strength * strength;
+    int historyLength = envelopeHistory.length;
+    for (int lag = minLag - 1; lag <= maxLag + 1; lag++) {
+      int past = historyPos - lag;
+      if (past < 0) { past += historyLength; }
+      autocorrelation[lag] = autocorrelation[lag] * decay + strength * envelopeHistory[past];
+    }
+    historyPos = historyPos + 1 == historyLength ? 0 : historyPos + 1;
+
+    if (energy <= 1e-6f) {
+      confidence = 0;
+      return;
+    }
+
+    int best = minLag;
+    float bestScore = -1, sum = 0;
+    for (int lag = minLag; lag <= maxLag; lag++) {
+      //With its neighbours, so a period between two whole frames scores as well as one on a frame.
+      float score = (autocorrelation[lag - 1] + autocorrelation[lag] + autocorrelation[lag + 1])
+          * lagPreference[lag];
+      if (score > bestScore * LONGER_LAG_MARGIN) {
+        bestScore = score;
+        best = lag;
+      }
+      sum += autocorrelation[lag];
+    }
+
+    if (bestScore <= 0) { //Onsets, but none a beat period apart yet.
+      confidence = 0;
+      return;
+    }
+
+    //Parabolic fit through the peak and its neighbours, for a period between whole frames.
+    if (autocorrelation[best - 1] > autocorrelation[best]) { best--; }
+    if (autocorrelation[best + 1] > autocorrelation[best]) { best++; }
+    float offset = 0;
+    if (best >= minLag && best <= maxLag) {
+      float left = autocorrelation[best - 1], centre = autocorrelation[best];
+      float right = autocorrelation[best + 1];
+      float curve = left - 2 * centre + right;
+      if (curve < 0) {
+        offset = Math.max(-0.5f, Math.min(0.5f, 0.5f * (left - right) / curve));
+      }
+    }
+    period = best + offset;
+
+    //How far the peak stands above the average lag, relative to the envelope's energy.
+    float mean = sum / (maxLag - minLag + 1);
+    float peak = autocorrelation[best];
+    confidence = energy > mean ? Math.max(0, Math.min(1, (peak - mean) / (energy - mean))) : 0;
+  }
+
+  //Advances the beat phase a frame, nudging it towards any onset. True if a beat was counted.
+  private boolean updatePhase(boolean onset) {
+    if (period <= 0) { return false; }
+
+    phase += 1 / period;
+    if (onset) {
+      //Error to the nearest beat, -0.5 to 0.5 of a period. Early onsets pull the beat forward.
+      float error = phase < 0.5f ? phase : phase - 1;
+      float gain = MAX_PHASE_GAIN - (MAX_PHASE_GAIN - MIN_PHASE_GAIN) * confidence;
+      phase -= error * gain;
+    }
+
+    if (phase < 1) { return false; }
+    phase -= (int) phase;
+    if (confidence < MIN_BEAT_CONFIDENCE) { return false; }
+    beatCount++;
+    return true;
+  }
+}
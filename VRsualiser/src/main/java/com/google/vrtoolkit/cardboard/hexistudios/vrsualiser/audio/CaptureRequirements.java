@@ -0,0 +1,46 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+/**
+ * What the renderer on screen needs from the audio analysis. The Analyser runs the smallest FFT
+ * at the lowest rate, with only the streams, that covers it, and pauses the source when it's
+ * NONE, so asking for less is cheaper on the audio side.
+ */
+public class CaptureRequirements {
+  public static final CaptureRequirements NONE = new CaptureRequirements(0, false, 0);
+
+  public final int bands;           //Distinct spectrum values used per frame, 0 for no spectrum.
+  public final boolean waveform;    //Whether updateVisualiserWave() is used.
+  public final float minUpdateRate; //Spectrum frames per second needed, 0 for any.
+
+  public CaptureRequirements(int bands, boolean waveform, float minUpdateRate) {
+    if (bands < 0 || minUpdateRate < 0) {
+      throw new IllegalArgumentException("Bands and rate can't be negative: " + bands + ", "
+          + minUpdateRate);
+    }
+    this.bands = bands;
+    this.waveform = waveform;
+    this.minUpdateRate = minUpdateRate;
+  }
+
+  public boolean wantsSpectrum() {
+    return bands > 0;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof CaptureRequirements)) { return false; }
+    CaptureRequirements other = (CaptureRequirements) o;
+    return bands == other.bands && waveform == other.waveform
+        && minUpdateRate == other.minUpdateRate;
+  }
+
+  @Override
+  public int hashCode() {
+    return (bands * 31 + (waveform ? 1 : 0)) * 31 + Float.floatToIntBits(minUpdateRate);
+  }
+
+  @Override
+  public String toString() {
+    return bands + " bands" + (waveform ? " + wave" : "") + " @ " + minUpdateRate + "Hz";
+  }
+}
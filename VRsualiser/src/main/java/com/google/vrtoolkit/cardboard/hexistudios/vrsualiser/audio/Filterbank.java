@@ -0,0 +1,164 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps a linear spectrum onto a number of log spaced bands, so every octave gets the same number
+ * of bars instead of the top octave getting half of them. Each band is a weighted average of the
+ * bins it covers, held as a sparse matrix (compressed rows), so applying it is one multiply-add
+ * per weight. Bands narrower than a bin, which is most of the bass, interpolate between the two
+ * nearest bins rather than all showing the same one.
+ *
+ * Building the weights is the expensive part, so banks are cached per layout; get() is cheap
+ * enough to call whenever the spectrum's layout might have changed.
+ */
+public class Filterbank {
+  public enum Scale {
+    //Triangles reaching from each band's neighbours' centres, so adjacent bands overlap by half.
+    LOG,
+    //Hann windows a fixed fraction of their centre frequency wide, the same Q for every band.
+    CONSTANT_Q
+  }
+
+  public static final float LOW_HZ = 30, HIGH_HZ = 16000;
+
+  private static final Map<String, Filterbank> CACHE = new HashMap<String, Filterbank>();
+
+  private final int bins, bands;
+  private final float binHz;
+  private final Scale scale;
+  private final float[] centreHz;
+  private final int[] rowStart; //Band b's weights are rowStart[b] to rowStart[b + 1] - 1.
+  private final int[] binIndex;
+  private final float[] weights;
+
+  //The shared bank for this layout, built on first use. Thread safe.
+  public static Filterbank get(int bins, float binHz, int bands, Scale scale) {
+    String key = bins + "-" + binHz + "-" + bands + "-" + scale;
+    synchronized (CACHE) {
+      Filterbank filterbank = CACHE.get(key);
+      if (filterbank == null) {
+        filterbank = new Filterbank(bins, binHz, bands, scale);
+        CACHE.put(key, filterbank);
+      }
+      return filterbank;
+    }
+  }
+
+  //current if it already fits the spectrum, otherwise the bank that does. For calling per frame.
+  public static Filterbank forSpectrum(SpectrumFrame spectrum, int bands, Scale scale,
+                                       Filterbank current) {
+    float binHz = spectrum.getBinHz();
+    if (current != null && current.bins == spectrum.binCount && current.binHz == binHz
+        && current.bands == bands && current.scale == scale) {
+      return current;
+    }
+    return get(spectrum.binCount, binHz, bands, scale);
+  }
+
+  private Filterbank(int bins, float binHz, int bands, Scale scale) {
+    if (bins < 2 || bands < 1) {
+      throw new IllegalArgumentException("Need at least 2 bins and a band: " + bins + ", " + bands);
+    }
+    this.bins = bins;
+    this.binHz = binHz;
+    this.bands = bands;
+    this.scale = scale;
+
+    //Centres spaced evenly in octaves, with one more each end so every band has two neighbours.
+    float lowHz = Math.max(LOW_HZ, binHz / 2);
+    float highHz = Math.min(HIGH_HZ, binHz * (bins - 1));
+    float step = (float) Math.pow(highHz / lowHz, 1.0 / (bands + 1));
+    centreHz = new float[bands];
+    for (int b = 0; b < bands; b++) {
+      centreHz[b] = lowHz * (float) Math.pow(step, b + 1);
+    }
+    //Constant Q: each band reaches to where its neighbours' centres are.
+    float halfWidth = step - 1;
+
+    //Two passes: find every band's bin range to size the arrays, then fill them.
+    int[] firstBin = new int[bands], lastBin = new int[bands];
+    boolean[] interpolated = new boolean[bands];
+    int total = 0;
+    for (int b = 0; b < bands; b++) {
+      float lowEdge = scale == Scale.LOG ? centreHz[b] / step : centreHz[b] * (1 - halfWidth);
+      float highEdge = scale == Scale.LOG ? centreHz[b] * step : centreHz[b] * (1 + halfWidth);
+      int first = Math.max(0, (int) Math.ceil(lowEdge / binHz));
+      int last = Math.min(bins - 1, (int) Math.floor(highEdge / binHz));
+      if (last - first < 1) {
+        //Narrower than a bin: interpolate between the bins either side of the centre.
+        first = Math.min(bins - 2, (int) (centreHz[b] / binHz));
+        last = first + 1;
+        interpolated[b] = true;
+      }
+      firstBin[b] = first;
+      lastBin[b] = last;
+      total += last - first + 1;
+    }
+
+    rowStart = new int[bands + 1];
+    binIndex = new int[total];
+    weights = new float[total];
+    int at = 0;
+    for (int b = 0; b < bands; b++) {
+      rowStart[b] = at;
+      float sum = 0;
+      for (int k = firstBin[b]; k <= lastBin[b]; k++) {
+        float weight = interpolated[b] ? 1 - Math.abs(k * binHz - centreHz[b]) / binHz
+            : weight(centreHz[b], k * binHz, step, halfWidth);
+        binIndex[at] = k;
+        weights[at] = weight;
+        sum += weight;
+        at++;
+      }
+      //Normalise, so a band reads the same level as the bins under it.
+      for (int i = rowStart[b]; i < at; i++) {
+        weights[i] = sum > 0 ? weights[i] / sum : 1f / (at - rowStart[b]);
+      }
+    }
+    rowStart[bands] = at;
+  }
+
+  private float weight(float centre, float hz, float step, float halfWidth) {
+    if (scale == Scale.LOG) {
+      //Triangle in octaves: 1 at the centre, 0 at the neighbouring centres.
+      float octaves = Math.abs((float) (Math.log(hz / centre) / Math.log(step)));
+      return Math.max(0, 1 - octaves);
+    }
+    float offset = (hz - centre) / (centre * halfWidth); //-1 to 1 across the band.
+    return offset <= -1 || offset >= 1 ? 0 : 0.5f + 0.5f * (float) Math.cos(Math.PI * offset);
+  }
+
+  public int getBandCount() {
+    return bands;
+  }
+
+  public int getBinCount() {
+    return bins;
+  }
+
+  public float getCentreHz(int band) {
+    return centreHz[band];
+  }
+
+  //Weights stored, i.e multiply-adds per apply().
+  public int getWeightCount() {
+    return weights.length;
+  }
+
+  //out[b] = band b of spectrum.values, for every band.
+  public void apply(SpectrumFrame spectrum, float[] out) {
+    apply(spectrum.values, out);
+  }
+
+  public void apply(float[] binValues, float[] out) {
+    for (int b = 0; b < bands; b++) {
+      float sum = 0;
+      for (int i = rowStart[b], end = rowStart[b + 1]; i < end; i++) {
+        sum += binValues[binIndex[i]] * weights[i];
+      }
+      out[b] = sum;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * The microphone, through AudioRecord. Reads go into one reused direct ByteBuffer, so the
+ * samples come straight from the driver with no Java array in between, and are then copied
+ * once into the ring.
+ */
+public class MicrophoneSource implements AudioSource {
+  private final int sampleRate, maxBlockSize;
+  private int blockSize;
+  private final AudioRecord audioRecord;
+  private final ByteBuffer readBuffer;
+  private final ShortBuffer readSamples;
+
+  public MicrophoneSource(int sampleRate, int blockSize) {
+    this.sampleRate = sampleRate;
+    this.blockSize = blockSize;
+    maxBlockSize = blockSize;
+
+    int minBufferSize = AudioRecord.getMinBufferSize(
+        sampleRate,
+        AudioFormat.CHANNEL_IN_MONO,
+        AudioFormat.ENCODING_PCM_16BIT
+    );
+
+    //Room for a few blocks, so a late read doesn't lose samples in the driver.
+    audioRecord = new AudioRecord(
+        MediaRecorder.AudioSource.MIC,
+        sampleRate,
+        AudioFormat.CHANNEL_IN_MONO,
+        AudioFormat.ENCODING_PCM_16BIT,
+        Math.max(minBufferSize, blockSize * 2 * 4)
+    );
+    if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+      audioRecord.release();
+      throw new IllegalStateException("AudioRecord failed to initialise");
+    }
+
+    readBuffer = ByteBuffer.allocateDirect(blockSize * 2);
+    readBuffer.order(ByteOrder.nativeOrder());
+    readSamples = readBuffer.asShortBuffer();
+  }
+
+  @Override
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  @Override
+  public int setBlockSize(int samples) {
+    blockSize = Math.max(1, Math.min(samples, maxBlockSize));
+    return blockSize;
+  }
+
+  @Override
+  public void start() {
+    audioRecord.startRecording();
+  }
+
+  @Override
+  public void pause() {
+    audioRecord.stop();
+  }
+
+  @Override
+  public int read(PcmRingBuffer ring) {
+    //Always fills from the start of the buffer, whatever its position.
+    int bytes = audioRecord.read(readBuffer, blockSize * 2);
+    if (bytes < 0) { return bytes; }
+
+    readSamples.clear();
+    return ring.write(readSamples, bytes / 2);
+  }
+
+  @Override
+  public void stop() {
+    audioRecord.stop();
+    audioRecord.release();
+  }
+}
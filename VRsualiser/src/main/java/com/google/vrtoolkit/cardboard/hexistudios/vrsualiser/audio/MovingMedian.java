@@ -0,0 +1,50 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import java.util.Arrays;
+
+/**
+ * Median of the last size values pushed. Keeps a sorted copy of the window alongside the
+ * arrival order, so a push is one binary search and two short array shifts, never a sort,
+ * and the median is a lookup. Fixed size, allocation free.
+ */
+public class MovingMedian {
+  private final float[] arrivals; //Circular, oldest at next once full.
+  private final float[] sorted;
+  private int next, count;
+
+  public MovingMedian(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Window must hold at least one value: " + size);
+    }
+    arrivals = new float[size];
+    sorted = new float[size];
+  }
+
+  public void push(float value) {
+    if (count == arrivals.length) {
+      //Drop the oldest from the sorted copy, closing the gap.
+      int old = Arrays.binarySearch(sorted, 0, count, arrivals[next]);
+      System.arraycopy(sorted, old + 1, sorted, old, count - old - 1);
+      count--;
+    }
+
+    int at = Arrays.binarySearch(sorted, 0, count, value);
+    if (at < 0) { at = -at - 1; }
+    System.arraycopy(sorted, at, sorted, at + 1, count - at);
+    sorted[at] = value;
+    count++;
+
+    arrivals[next] = value;
+    next = next + 1 == arrivals.length ? 0 : next + 1;
+  }
+
+  //0 until something has been pushed.
+  public float median() {
+    return count == 0 ? 0 : sorted[count / 2];
+  }
+
+  public void clear() {
+    next = 0;
+    count = 0;
+  }
+}
@@ -0,0 +1,136 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size ring of 16 bit samples between one writer thread (the capture thread) and one reader
+ * thread. Allocated once, neither side blocks or allocates.
+ *
+ * When the reader falls behind, the overflow policy decides what is lost: DROP_NEWEST keeps what
+ * is already queued and discards the incoming samples, DROP_OLDEST moves the reader on so the
+ * newest audio always gets in. With DROP_OLDEST the writer claims the slots it will overwrite
+ * before touching them, and a reader that was part way through copying them notices and retries.
+ */
+public class PcmRingBuffer {
+  public enum OverflowPolicy { DROP_NEWEST, DROP_OLDEST }
+
+  private final short[] samples;
+  private final int capacity, mask;
+  private final OverflowPolicy policy;
+
+  //Total samples ever written and read. Only the writer moves writePos, both may move readPos.
+  private volatile long writePos;
+  private final AtomicLong readPos = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  //Capacity must be a power of two.
+  public PcmRingBuffer(int capacity, OverflowPolicy policy) {
+    if (capacity < 1 || (capacity & (capacity - 1)) != 0) {
+      throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+    }
+    this.capacity = capacity;
+    this.policy = policy;
+    mask = capacity - 1;
+    samples = new short[capacity];
+  }
+
+  //Smallest power of two holding at least the given number of samples.
+  public static int capacityFor(int samples) {
+    int capacity = 1;
+    while (capacity < samples) { capacity <<= 1; }
+    return capacity;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  //Samples waiting to be read.
+  public int available() {
+    return (int) (writePos - readPos.get());
+  }
+
+  //Samples lost to overflow so far, whichever end they came from.
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  //Writer only. How many of count incoming samples to store, making room first if the policy says.
+  private int reserve(int count) {
+    long w = writePos;
+    int free = capacity - (int) (w - readPos.get());
+    if (count <= free) { return count; }
+
+    if (policy == OverflowPolicy.DROP_NEWEST) {
+      dropped.addAndGet(count - free);
+      return free;
+    }
+
+    //Drop oldest: never more than a ring's worth survives, then push the reader past what we need.
+    int keep = Math.min(count, capacity);
+    dropped.addAndGet(count - keep);
+    while (true) {
+      long r = readPos.get();
+      long behind = w + keep - capacity - r;
+      if (behind <= 0) { break; }
+      if (readPos.compareAndSet(r, r + behind)) {
+        dropped.addAndGet(behind);
+        break;
+      }
+    }
+    return keep;
+  }
+
+  //Writer only. Returns how many samples were stored, see the overflow policy.
+  public int write(short[] src, int offset, int count) {
+    int n = reserve(count);
+    if (policy == OverflowPolicy.DROP_OLDEST) {
+      offset += count - n; //The newest n.
+    }
+
+    long w = writePos;
+    int start = (int) (w & mask);
+    int first = Math.min(n, capacity - start);
+    System.arraycopy(src, offset, samples, start, first);
+    System.arraycopy(src, offset + first, samples, 0, n - first);
+    writePos = w + n;
+    return n;
+  }
+
+  //Writer only. Takes count samples from src's position, which is left after them.
+  public int write(ShortBuffer src, int count) {
+    int n = reserve(count);
+    if (policy == OverflowPolicy.DROP_OLDEST) {
+      src.position(src.position() + count - n);
+    }
+
+    long w = writePos;
+    int start = (int) (w & mask);
+    int first = Math.min(n, capacity - start);
+    src.get(samples, start, first);
+    src.get(samples, 0, n - first);
+    if (policy == OverflowPolicy.DROP_NEWEST) {
+      src.position(src.position() + count - n);
+    }
+    writePos = w + n;
+    return n;
+  }
+
+  //Reader only. Copies up to count of the oldest samples into dst, returns how many.
+  public int read(short[] dst, int offset, int count) {
+    while (true) {
+      long r = readPos.get();
+      int n = (int) Math.min(count, writePos - r);
+      if (n <= 0) { return 0; }
+
+      int start = (int) (r & mask);
+      int first = Math.min(n, capacity - start);
+      System.arraycopy(samples, start, dst, offset, first);
+      System.arraycopy(samples, 0, dst, offset + first, n - first);
+
+      if (readPos.compareAndSet(r, r + n)) { return n; }
+      //The writer moved us on mid-copy, so some of it may have been overwritten. Go again.
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+/**
+ * Streams 16 bit PCM through a windowed RealFft, producing one SpectrumFrame every hop samples.
+ * Frames overlap by fftSize - hopSize samples, so the output rate is sampleRate / hopSize
+ * whatever the FFT size. A hop longer than the FFT skips the samples between windows.
+ * Everything is allocated up front; write() allocates nothing.
+ * Only for use from one thread, normally the capture thread.
+ */
+public class PcmSpectrumEngine {
+  //dBFS range mapped onto 0-1 unless changed through the analyser.
+  public static final float DEFAULT_FLOOR_DB = -80f, DEFAULT_CEILING_DB = 0f;
+
+  private final RealFft fft;
+  private final int fftSize, hopSize, sampleRate;
+  private final float[] window, history, block, fftRe, fftIm, power;
+  private final float powerScale;
+  private final SpectrumAnalyser analyser;
+  private final TripleBuffer<SpectrumFrame> output;
+  private BeatDetector beatDetector;
+  private int historyPos, sinceLastFrame;
+  private long framesProduced;
+
+  public PcmSpectrumEngine(int fftSize, int hopSize, int sampleRate, Window windowType,
+                           SpectrumAnalyser analyser, TripleBuffer<SpectrumFrame> output) {
+    if (hopSize < 1) {
+      throw new IllegalArgumentException("Hop size must be at least 1: " + hopSize);
+    }
+    this.fftSize = fftSize;
+    this.hopSize = hopSize;
+    this.sampleRate = sampleRate;
+    this.analyser = analyser;
+    this.output = output;
+
+    fft = new RealFft(fftSize);
+    window = windowType.coefficients(fftSize);
+    history = new float[fftSize];
+    block = new float[fftSize];
+    fftRe = new float[fft.getBinCount()];
+    fftIm = new float[fft.getBinCount()];
+    power = new float[fft.getBinCount()];
+
+    //Scale so a full scale sine reads 0 dBFS, whatever the window.
+    float windowSum = 0;
+    for (float w : window) { windowSum += w; }
+    float fullScale = windowSum / 2;
+    powerScale = 1 / (fullScale * fullScale);
+
+    analyser.setNormalisation(DEFAULT_FLOOR_DB, DEFAULT_CEILING_DB);
+  }
+
+  //Bins published per frame, DC up to but not including Nyquist.
+  public int getBinCount() {
+    return fftSize / 2;
+  }
+
+  public int getHopSize() {
+    return hopSize;
+  }
+
+  public float getFrameRate() {
+    return (float) sampleRate / hopSize;
+  }
+
+  //Centre frequency of a bin in Hz.
+  public float binFrequency(int bin) {
+    return (float) bin * sampleRate / fftSize;
+  }
+
+  //Runs on every frame before it is published. Set before writing starts, or null for none.
+  public void setBeatDetector(BeatDetector beatDetector) {
+    this.beatDetector = beatDetector;
+  }
+
+  public long getFramesProduced() {
+    return framesProduced;
+  }
+
+  //Feed count samples from pcm[offset], taking the last to have been captured just now.
+  public void write(short[] pcm, int offset, int count) {
+    write(pcm, offset, count, System.nanoTime());
+  }
+
+  /**
+   * Feed count samples from pcm[offset]. Publishes a frame for every hopSize samples consumed,
+   * timestamped from endNanos: the System.nanoTime() the last of these samples was captured at.
+   */
+  public void write(short[] pcm, int offset, int count, long endNanos) {
+    for (int i = 0; i < count; i++) {
+      history[historyPos] = pcm[offset + i] * (1f / 32768f);
+      historyPos = (historyPos + 1) & (fftSize - 1);
+
+      if (++sinceLastFrame == hopSize) {
+        sinceLastFrame = 0;
+        analyse(endNanos - (count - 1 - i) * 1000000000L / sampleRate);
+      }
+    }
+  }
+
+  private void analyse(long timestampNanos) {
+    //Unroll the circular history oldest first, windowing on the way.
+    for (int i = 0; i < fftSize; i++) {
+      block[i] = history[(historyPos + i) & (fftSize - 1)] * window[i];
+    }
+
+    fft.powerSpectrum(block, 0, fftRe, fftIm, power);
+
+    SpectrumFrame frame = output.beginWrite();
+    int bins = Math.min(getBinCount(), frame.db.length);
+    for (int k = 0; k < bins; k++) {
+      float p = power[k] *= powerScale; //Scaled in place, the beat detector sums it as it is.
+      frame.db[k] = p > 1e-12f ? (float) (10 * Math.log10(p)) : -120f;
+    }
+    frame.binHz = (float) sampleRate / fftSize;
+    frame.timestampNanos = timestampNanos;
+    analyser.process(frame, bins);
+    if (beatDetector != null) {
+      beatDetector.process(frame, power, bins);
+    }
+    output.publish();
+    framesProduced++;
+  }
+}
@@ -0,0 +1,109 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+/**
+ * Radix-2 FFT of real input, with all tables built once so a transform allocates nothing.
+ * An n point real signal is packed into an n/2 point complex one (even samples real, odd
+ * samples imaginary), transformed, then split back into the n/2 + 1 real spectrum bins.
+ * Not thread safe, each thread needs its own instance.
+ */
+public class RealFft {
+  private final int size, half;
+  private final int[] bitReverse;
+  private final float[] cos, sin;           //Twiddles for the n/2 point complex FFT.
+  private final float[] splitCos, splitSin; //Twiddles for splitting the packed result.
+  private final float[] re, im;             //Work space.
+
+  public RealFft(int size) {
+    if (size < 4 || (size & (size - 1)) != 0) {
+      throw new IllegalArgumentException("FFT size must be a power of two >= 4: " + size);
+    }
+    this.size = size;
+    half = size / 2;
+
+    bitReverse = new int[half];
+    int bits = Integer.numberOfTrailingZeros(half);
+    for (int i = 0; i < half; i++) {
+      bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+    }
+
+    cos = new float[half / 2];
+    sin = new float[half / 2];
+    for (int i = 0; i < half / 2; i++) {
+      double angle = 2 * Math.PI * i / half;
+      cos[i] = (float) Math.cos(angle);
+      sin[i] = (float) Math.sin(angle);
+    }
+
+    splitCos = new float[half + 1];
+    splitSin = new float[half + 1];
+    for (int k = 0; k <= half; k++) {
+      double angle = 2 * Math.PI * k / size;
+      splitCos[k] = (float) Math.cos(angle);
+      splitSin[k] = (float) Math.sin(angle);
+    }
+
+    re = new float[half];
+    im = new float[half];
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  //Number of output bins, DC to Nyquist inclusive.
+  public int getBinCount() {
+    return half + 1;
+  }
+
+  /**
+   * Transform size samples from input[offset]. Writes getBinCount() values into outRe / outIm.
+   */
+  public void forward(float[] input, int offset, float[] outRe, float[] outIm) {
+    //Pack even/odd samples as complex, in bit reversed order ready for the butterflies.
+    for (int i = 0; i < half; i++) {
+      int j = bitReverse[i];
+      re[j] = input[offset + 2 * i];
+      im[j] = input[offset + 2 * i + 1];
+    }
+
+    for (int span = 1; span < half; span <<= 1) {
+      int step = half / (span << 1);
+      for (int start = 0; start < half; start += span << 1) {
+        for (int k = 0; k < span; k++) {
+          float wr = cos[k * step], wi = -sin[k * step];
+          int a = start + k, b = a + span;
+          float tr = re[b] * wr - im[b] * wi;
+          float ti = re[b] * wi + im[b] * wr;
+          re[b] = re[a] - tr;
+          im[b] = im[a] - ti;
+          re[a] += tr;
+          im[a] += ti;
+        }
+      }
+    }
+
+    //X[k] = E[k] + W^k O[k], where E and O are the spectra of the even and odd samples.
+    for (int k = 0; k <= half; k++) {
+      int a = k == half ? 0 : k;
+      int b = k == 0 ? 0 : half - k;
+      float zr = re[a], zi = im[a];
+      float cr = re[b], ci = -im[b]; //conj(Z[n/2 - k])
+
+      float er = (zr + cr) * 0.5f, ei = (zi + ci) * 0.5f;
+      float or = (zi - ci) * 0.5f, oi = -(zr - cr) * 0.5f;
+
+      float wr = splitCos[k], wi = -splitSin[k];
+      outRe[k] = er + or * wr - oi * wi;
+      outIm[k] = ei + or * wi + oi * wr;
+    }
+  }
+
+  //Squared magnitude of each bin, getBinCount() values into power.
+  public void powerSpectrum(float[] input, int offset, float[] outRe, float[] outIm,
+                            float[] power) {
+    forward(input, offset, outRe, outIm);
+    for (int k = 0; k <= half; k++) {
+      power[k] = outRe[k] * outRe[k] + outIm[k] * outIm[k];
+    }
+  }
+}
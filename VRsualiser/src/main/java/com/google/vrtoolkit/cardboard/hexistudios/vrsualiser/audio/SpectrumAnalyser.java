@@ -0,0 +1,85 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+/**
+ * Normalises and smooths the dB values in a SpectrumFrame, normally from a PcmSpectrumEngine.
+ *
+ * It can also turn the packed byte pairs from Visualizer.getFft() into a frame, which only the
+ * benchmarks still do. Both halves of each pair are 8 bit, so every possible pair's dB value is
+ * precomputed into a 64K table, and a frame costs one lookup per bin instead of a log10. The
+ * table is only built the first time a byte frame is read. Bin k is read from bytes 2k and
+ * 2k + 1, as the renderers always have.
+ */
+public class SpectrumAnalyser {
+  //10 * log10(128^2 + 128^2), the loudest a pair can be.
+  public static final float MAX_DB = 45.15f;
+
+  //Loaded by the JVM on first use, so the 256KB table costs nothing unless bytes are read.
+  private static final class DbTable {
+    static final float[] DB = new float[65536];
+
+    static {
+      for (int r = 0; r < 256; r++) {
+        for (int i = 0; i < 256; i++) {
+          int rfk = (byte) r, ifk = (byte) i; //Indexed by the unsigned bits of signed bytes.
+          int magnitude = rfk * rfk + ifk * ifk;
+          DB[(r << 8) | i] = magnitude > 0 ? (float) (10 * Math.log10(magnitude)) : 0;
+        }
+      }
+    }
+  }
+
+  private final float[] smoothed;
+  private float floorDb = 0, ceilingDb = MAX_DB;
+  private float attack = 1.0f, decay = 0.35f;
+
+  public SpectrumAnalyser(int maxBins) {
+    smoothed = new float[maxBins];
+  }
+
+  public static float toDb(byte rfk, byte ifk) {
+    return DbTable.DB[((rfk & 0xFF) << 8) | (ifk & 0xFF)];
+  }
+
+  //dB range mapped onto 0-1, values outside it are clamped.
+  public void setNormalisation(float floorDb, float ceilingDb) {
+    this.floorDb = floorDb;
+    this.ceilingDb = ceilingDb;
+  }
+
+  //Fraction of the gap to the new value closed each frame when rising (attack) or falling (decay).
+  //1 means no smoothing.
+  public void setSmoothing(float attack, float decay) {
+    this.attack = attack;
+    this.decay = decay;
+  }
+
+  public void process(byte[] fftBytes, SpectrumFrame out) {
+    int bins = Math.min(fftBytes.length / 2, smoothed.length);
+    float[] table = DbTable.DB;
+    for (int k = 0; k < bins; k++) {
+      out.db[k] = table[((fftBytes[2 * k] & 0xFF) << 8) | (fftBytes[2 * k + 1] & 0xFF)];
+    }
+    normalise(out, bins);
+  }
+
+  //For spectra computed elsewhere: normalise and smooth dB values already written to out.db.
+  public void process(SpectrumFrame out, int bins) {
+    normalise(out, Math.min(bins, smoothed.length));
+  }
+
+  //Normalise and smooth out.db[0..bins) into out.values.
+  protected void normalise(SpectrumFrame out, int bins) {
+    float scale = 1 / (ceilingDb - floorDb);
+
+    for (int k = 0; k < bins; k++) {
+      float target = (out.db[k] - floorDb) * scale;
+      if (target < 0) { target = 0; } else if (target > 1) { target = 1; }
+
+      float current = smoothed[k];
+      current += (target - current) * (target > current ? attack : decay);
+      smoothed[k] = current;
+      out.values[k] = current;
+    }
+    out.binCount = bins;
+  }
+}
@@ -0,0 +1,44 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+/**
+ * One analysed FFT capture, reused from frame to frame rather than reallocated.
+ * values[] is what renderers should read: normalised to 0-1 and smoothed per bin.
+ */
+public class SpectrumFrame {
+  public final float[] values; //Normalised, smoothed magnitude per bin, 0 to 1.
+  public final float[] db;     //Raw magnitude per bin in dB, before normalisation.
+  public int binCount;
+  public float binHz; //Width of each bin, 0 if the source didn't say.
+  //System.nanoTime() the newest audio in the frame was captured at, 0 if the source didn't say.
+  public long timestampNanos;
+
+  //Filled in by a BeatDetector, when there is one. Counts only ever grow, so a reader that
+  //skipped frames can still tell a beat or onset happened since it last looked.
+  public boolean beat;          //A beat fell on this frame.
+  public long beatCount;
+  public float beatPhase;       //0 on a beat, rising to 1 just before the next.
+  public float beatConfidence;  //0 to 1, how steady the beat has been lately.
+  public float tempoBpm;        //0 until a tempo has been found.
+  public int onsetBands;        //Bit b set if BeatDetector band b (lowest first) had an onset.
+  public float onsetStrength;   //Envelope above its running median, on onset frames, else 0.
+  public long onsetCount;
+
+  public SpectrumFrame(int maxBins) {
+    values = new float[maxBins];
+    db = new float[maxBins];
+  }
+
+  public float get(int bin) {
+    return values[bin];
+  }
+
+  //Width of each bin in Hz. Without one from the source, assumes the bins reach 44.1kHz's Nyquist.
+  public float getBinHz() {
+    return binHz > 0 ? binHz : 22050f / Math.max(1, binCount);
+  }
+
+  //Bin for the i'th of count evenly spaced picks across the spectrum.
+  public int binFor(int i, int count) {
+    return (int)((long)i * binCount / count);
+  }
+}
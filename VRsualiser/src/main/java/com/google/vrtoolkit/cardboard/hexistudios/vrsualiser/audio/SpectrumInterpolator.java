@@ -0,0 +1,162 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import java.util.Arrays;
+
+/**
+ * Turns values captured at the audio's rate, with timestamps, into values for each display
+ * frame. The last few captures are kept and each frame reads them at its own time, less half a
+ * capture interval: the first half of each interval interpolates between captures, the second
+ * extrapolates from the last two. Half a capture of latency buys most of the smoothness of
+ * interpolating, without the overshoot of always extrapolating. That target is then
+ * followed by a critically damped spring per value, which takes out the corners without
+ * overshooting. Values are taken to be normalised, extrapolation is clamped to 0-1.
+ * For the GL thread only; nothing is allocated after construction.
+ */
+public class SpectrumInterpolator {
+  private static final int HISTORY = 4;
+  //How far behind the frame time to read, and how far past the newest capture to extrapolate
+  //before holding, in capture intervals.
+  private static final float RENDER_DELAY = 0.5f, MAX_EXTRAPOLATION = 1f;
+  //Below this movement a frame counts as settled.
+  private static final float SETTLED = 1e-4f;
+  private static final long MAX_STEP_NANOS = 100000000L;
+
+  private final int size;
+  private final float[][] history = new float[HISTORY][];
+  private final long[] times = new long[HISTORY];
+  private int newest = -1, count;
+  private long averageInterval;
+
+  private final float[] target, value, velocity;
+  private final float omega;
+  private long lastFrameNanos;
+  private boolean primed;
+
+  /**
+   * @param size           Values per capture.
+   * @param smoothSeconds  Roughly how long the spring takes to catch up with a step.
+   */
+  public SpectrumInterpolator(int size, float smoothSeconds) {
+    this.size = size;
+    for (int i = 0; i < HISTORY; i++) {
+      history[i] = new float[size];
+    }
+    target = new float[size];
+    value = new float[size];
+    velocity = new float[size];
+    omega = 2 / smoothSeconds;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  //Average time between captures, 0 until there have been two.
+  public long getAverageIntervalNanos() {
+    return averageInterval;
+  }
+
+  /**
+   * Adds a capture. One with no timestamp (0), or no newer than the last, replaces the last, so
+   * untimed sources still get the smoothing.
+   */
+  public void push(float[] values, long timestampNanos) {
+    if (count > 0 && timestampNanos <= times[newest]) {
+      System.arraycopy(values, 0, history[newest], 0, size);
+      return;
+    }
+
+    if (count > 0) {
+      long interval = timestampNanos - times[newest];
+      averageInterval = averageInterval == 0
+          ? interval : averageInterval + (interval - averageInterval) / 8;
+    }
+    newest = (newest + 1) % HISTORY;
+    System.arraycopy(values, 0, history[newest], 0, size);
+    times[newest] = timestampNanos;
+    if (count < HISTORY) { count++; }
+  }
+
+  /**
+   * Writes the values for a frame drawn at frameNanos into out.
+   * Returns false, leaving out alone, when nothing has moved since the last frame.
+   */
+  public boolean sample(long frameNanos, float[] out) {
+    if (count == 0) { return false; }
+    findTarget(frameNanos - (long) (averageInterval * RENDER_DELAY));
+
+    if (!primed) {
+      System.arraycopy(target, 0, value, 0, size);
+      primed = true;
+      lastFrameNanos = frameNanos;
+      System.arraycopy(value, 0, out, 0, size);
+      return true;
+    }
+
+    long stepNanos = Math.max(0, Math.min(MAX_STEP_NANOS, frameNanos - lastFrameNanos));
+    lastFrameNanos = frameNanos;
+    float dt = stepNanos * 1e-9f;
+
+    //Critically damped spring towards the target, stable however long the step.
+    float x = omega * dt;
+    float decay = 1 / (1 + x + 0.48f * x * x + 0.235f * x * x * x);
+    float moved = 0;
+    for (int i = 0; i < size; i++) {
+      float change = value[i] - target[i];
+      float temp = (velocity[i] + omega * change) * dt;
+      velocity[i] = (velocity[i] - omega * temp) * decay;
+      float next = target[i] + (change + temp) * decay;
+      moved = Math.max(moved, Math.abs(next - value[i]));
+      value[i] = next;
+    }
+    if (moved < SETTLED) { return false; }
+
+    System.arraycopy(value, 0, out, 0, size);
+    return true;
+  }
+
+  //Values at renderNanos: between the captures either side, or carried on from the last two.
+  private void findTarget(long renderNanos) {
+    float[] latest = history[newest];
+    if (count == 1 || renderNanos >= times[newest]) {
+      if (count == 1 || averageInterval == 0) {
+        System.arraycopy(latest, 0, target, 0, size);
+        return;
+      }
+      int previous = (newest + HISTORY - 1) % HISTORY;
+      float span = times[newest] - times[previous];
+      float ahead = Math.min(renderNanos - times[newest], MAX_EXTRAPOLATION * averageInterval);
+      blend(history[previous], latest, 1 + ahead / span, true);
+      return;
+    }
+
+    //Newest first, find the pair either side. Older than everything kept holds the oldest.
+    int later = newest;
+    for (int i = 1; i < count; i++) {
+      int earlier = (newest + HISTORY - i) % HISTORY;
+      if (times[earlier] <= renderNanos) {
+        float t = (float) (renderNanos - times[earlier]) / (times[later] - times[earlier]);
+        blend(history[earlier], history[later], t, false);
+        return;
+      }
+      later = earlier;
+    }
+    System.arraycopy(history[later], 0, target, 0, size);
+  }
+
+  private void blend(float[] from, float[] to, float t, boolean clamp) {
+    for (int i = 0; i < size; i++) {
+      float v = from[i] + (to[i] - from[i]) * t;
+      target[i] = clamp ? Math.max(0, Math.min(1, v)) : v;
+    }
+  }
+
+  //Forget everything, e.g when the source changes.
+  public void reset() {
+    newest = -1;
+    count = 0;
+    averageInterval = 0;
+    primed = false;
+    Arrays.fill(velocity, 0);
+  }
+}
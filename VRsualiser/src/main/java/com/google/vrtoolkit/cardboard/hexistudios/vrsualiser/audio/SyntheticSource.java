@@ -0,0 +1,99 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import java.util.Random;
+
+/**
+ * Generated audio for devices (and emulators) with nothing to capture, and for running the
+ * analysis off-device: a kick drum on every beat, a tone sweeping up through the mids and a
+ * little noise. Fixed seed, so every run is the same. When paced, read() sleeps until each
+ * block is due, as a real source would.
+ */
+public class SyntheticSource implements AudioSource {
+  private static final float BEATS_PER_MINUTE = 120;
+  private static final float SWEEP_SECONDS = 8, SWEEP_LOW_HZ = 200, SWEEP_HIGH_HZ = 4000;
+
+  private final int sampleRate, maxBlockSize;
+  private int blockSize;
+  private final boolean paced;
+  private final short[] block;
+  private final Random random = new Random(1);
+  private long samplePos, startNanos;
+  private double sweepPhase;
+
+  public SyntheticSource(int sampleRate, int blockSize, boolean paced) {
+    this.sampleRate = sampleRate;
+    this.blockSize = blockSize;
+    maxBlockSize = blockSize;
+    this.paced = paced;
+    block = new short[blockSize];
+  }
+
+  @Override
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  @Override
+  public int setBlockSize(int samples) {
+    blockSize = Math.max(1, Math.min(samples, maxBlockSize));
+    return blockSize;
+  }
+
+  //Carries on from where it paused, paced from now.
+  @Override
+  public void start() {
+    startNanos = System.nanoTime() - samplePos * 1000000000L / sampleRate;
+  }
+
+  @Override
+  public void pause() {}
+
+  @Override
+  public int read(PcmRingBuffer ring) {
+    if (paced) {
+      long due = startNanos + (samplePos + blockSize) * 1000000000L / sampleRate;
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        try {
+          Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return -1;
+        }
+      }
+    }
+
+    fill(block, 0, blockSize);
+    return ring.write(block, 0, blockSize);
+  }
+
+  //The next count samples of the signal. Public so the same audio can be analysed directly.
+  public void fill(short[] out, int offset, int count) {
+    float beatSamples = sampleRate * 60f / BEATS_PER_MINUTE;
+    float sweepSamples = sampleRate * SWEEP_SECONDS;
+
+    for (int i = 0; i < count; i++, samplePos++) {
+      //Kick: a 60Hz thump, decaying over the first ~100ms of each beat.
+      float sinceBeat = (samplePos % (long) beatSamples) / (float) sampleRate;
+      float kick = (float) (Math.exp(-sinceBeat * 30) * Math.sin(2 * Math.PI * 60 * sinceBeat));
+
+      //Sweep: exponential in frequency, so it spends as long in each octave.
+      float sweep = (samplePos % (long) sweepSamples) / sweepSamples;
+      double hz = SWEEP_LOW_HZ * Math.pow(SWEEP_HIGH_HZ / SWEEP_LOW_HZ, sweep);
+      sweepPhase += 2 * Math.PI * hz / sampleRate;
+      if (sweepPhase > 2 * Math.PI) { sweepPhase -= 2 * Math.PI; }
+
+      float value = 0.6f * kick + 0.25f * (float) Math.sin(sweepPhase)
+          + 0.05f * (random.nextFloat() * 2 - 1);
+      out[offset + i] = (short) (Math.max(-1f, Math.min(1f, value)) * 32767);
+    }
+  }
+
+  @Override
+  public void stop() {}
+}
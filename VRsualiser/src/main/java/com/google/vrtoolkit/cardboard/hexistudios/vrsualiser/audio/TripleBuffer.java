@@ -0,0 +1,71 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand off of the latest frame from one producer thread to one consumer thread.
+ * Three preallocated slots: the writer fills its back slot, then swaps it with the shared middle
+ * slot; the reader swaps the middle slot for its front slot when a fresh one is waiting. Neither
+ * side ever blocks or sees a slot the other is still using, and the reader always gets the
+ * newest frame, older unread frames are dropped.
+ */
+public class TripleBuffer<T> {
+  private static final int INDEX_MASK = 3;
+  private static final int FRESH = 4; //Set on the middle index when it holds an unread frame.
+
+  private final Object[] slots;
+  private final AtomicInteger middle = new AtomicInteger(1);
+  private int back = 2;   //Only touched by the writer.
+  private int front = 0;  //Only touched by the reader.
+
+  //Each counter has a single writing thread, so volatile is enough for other threads to read them.
+  private volatile long published, consumed, dropped;
+
+  public TripleBuffer(T first, T second, T third) {
+    slots = new Object[]{first, second, third};
+  }
+
+  //Writer: the slot to fill before calling publish().
+  @SuppressWarnings("unchecked")
+  public T beginWrite() {
+    return (T) slots[back];
+  }
+
+  //Writer: make the filled slot the newest frame.
+  public void publish() {
+    int old = middle.getAndSet(back | FRESH);
+    back = old & INDEX_MASK;
+    published++;
+    if ((old & FRESH) != 0) {
+      dropped++; //Overwrote a frame the reader never saw.
+    }
+  }
+
+  //Reader: the newest frame published since the last poll, or null if there is none.
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    if ((middle.get() & FRESH) == 0) { return null; }
+
+    front = middle.getAndSet(front) & INDEX_MASK;
+    consumed++;
+    return (T) slots[front];
+  }
+
+  //Reader: the frame returned by the last successful poll.
+  @SuppressWarnings("unchecked")
+  public T latest() {
+    return (T) slots[front];
+  }
+
+  public long getPublished() {
+    return published;
+  }
+
+  public long getConsumed() {
+    return consumed;
+  }
+
+  public long getDropped() {
+    return dropped;
+  }
+}
@@ -0,0 +1,102 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+import android.media.audiofx.Visualizer;
+
+/**
+ * Whatever the device is playing, through a Visualizer on the output mix. Rather than a capture
+ * listener (which hands over a new array per callback), the waveform is polled into one reused
+ * array, once per capture's worth of time.
+ *
+ * The Visualizer only offers 8 bit snapshots of the most recent capture, so consecutive blocks
+ * can overlap or leave small gaps when the polling drifts. That's fine for a spectrum display.
+ * It starts at the largest capture size, setBlockSize() shrinks it for sparser polling needs
+ * than that, and pause() disables the Visualizer entirely.
+ */
+public class VisualizerSource implements AudioSource {
+  private final Visualizer visualizer;
+  private final int sampleRate, minCaptureSize, maxCaptureSize;
+  private int captureSize;
+  private long blockNanos;
+  private byte[] waveform; //Exactly captureSize, the Visualizer fills the whole array.
+  private final short[] block;
+  private long startNanos, blocksRead;
+
+  public VisualizerSource() {
+    visualizer = new Visualizer(0); //Session 0 is the output mix.
+    int[] range = Visualizer.getCaptureSizeRange();
+    minCaptureSize = range[0];
+    maxCaptureSize = range[1];
+    sampleRate = visualizer.getSamplingRate() / 1000; //Reported in milliHertz.
+    block = new short[maxCaptureSize];
+    setBlockSize(maxCaptureSize);
+  }
+
+  @Override
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  public int getBlockSize() {
+    return captureSize;
+  }
+
+  //Largest capture size (a power of two) no bigger than samples. Only allowed while disabled.
+  @Override
+  public int setBlockSize(int samples) {
+    int size = minCaptureSize;
+    while (size * 2 <= Math.min(samples, maxCaptureSize)) { size *= 2; }
+    if (size != captureSize) {
+      visualizer.setCaptureSize(size);
+      captureSize = size;
+      blockNanos = captureSize * 1000000000L / sampleRate;
+      waveform = new byte[captureSize]; //Only on a change of requirements, never per read.
+    }
+    return captureSize;
+  }
+
+  @Override
+  public void start() {
+    visualizer.setEnabled(true);
+    startNanos = System.nanoTime();
+    blocksRead = 0;
+  }
+
+  @Override
+  public void pause() {
+    visualizer.setEnabled(false);
+  }
+
+  @Override
+  public int read(PcmRingBuffer ring) {
+    long now = System.nanoTime();
+    if (now - startNanos > (blocksRead + 2) * blockNanos) {
+      //Fell behind (e.g descheduled). Catching up would only re-read the same snapshot.
+      blocksRead = (now - startNanos) / blockNanos - 1;
+    }
+    long wait = startNanos + (blocksRead + 1) * blockNanos - now;
+    if (wait > 0) {
+      try {
+        Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return -1;
+      }
+    }
+    blocksRead++;
+
+    if (visualizer.getWaveForm(waveform) != Visualizer.SUCCESS) { return -1; }
+
+    //Unsigned 8 bit, centred on 128, up to 16 bit signed.
+    for (int i = 0; i < captureSize; i++) {
+      block[i] = (short) (((waveform[i] & 0xFF) - 128) << 8);
+    }
+    return ring.write(block, 0, captureSize);
+  }
+
+  @Override
+  public void stop() {
+    visualizer.setEnabled(false);
+    visualizer.release();
+  }
+}
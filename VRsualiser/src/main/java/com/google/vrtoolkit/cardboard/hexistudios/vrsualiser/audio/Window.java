@@ -0,0 +1,26 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio;
+
+/**
+ * Analysis windows applied to each block of samples before the FFT.
+ */
+public enum Window {
+  RECTANGULAR, HANN, BLACKMAN;
+
+  public float[] coefficients(int size) {
+    float[] window = new float[size];
+    for (int i = 0; i < size; i++) {
+      double phase = 2 * Math.PI * i / size; //Periodic form, suits overlapping frames.
+      switch (this) {
+        case HANN:
+          window[i] = (float) (0.5 - 0.5 * Math.cos(phase));
+          break;
+        case BLACKMAN:
+          window[i] = (float) (0.42 - 0.5 * Math.cos(phase) + 0.08 * Math.cos(2 * phase));
+          break;
+        default:
+          window[i] = 1;
+      }
+    }
+    return window;
+  }
+}
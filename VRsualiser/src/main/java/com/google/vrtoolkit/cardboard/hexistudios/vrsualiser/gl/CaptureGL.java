@@ -0,0 +1,256 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every call made through it, with its arguments and the bytes it sends to the driver,
+ * so the render code can be checked on a plain JVM with no GPU. Calls are passed on to another
+ * GL if one is given, otherwise they go nowhere (buffer names are still handed out).
+ *
+ * Calls are grouped into frames by beginFrame(). Totals for each frame are always kept, the
+ * full call log only while logging is on.
+ */
+public class CaptureGL implements GL {
+  public enum Op {
+    USE_PROGRAM(true), ENABLE_ATTRIB(true), DISABLE_ATTRIB(true), GEN_BUFFERS(false),
+    DELETE_BUFFERS(false), BIND_BUFFER(true), BUFFER_DATA(false), BUFFER_SUB_DATA(false),
+    ATTRIB_POINTER(true), DRAW_ELEMENTS(false), DRAW_ARRAYS(false), UNIFORM_3FV(false),
+    UNIFORM_4FV(false), UNIFORM_MATRIX_4FV(false);
+
+    //Changes bound state (program, buffers, attribute setup) rather than data or drawing.
+    public final boolean stateChange;
+
+    Op(boolean stateChange) {
+      this.stateChange = stateChange;
+    }
+  }
+
+  //One recorded call. bytes is what it sends to the driver: buffer or uniform data.
+  public static final class Call {
+    public final int frame;
+    public final Op op;
+    public final int[] args;
+    public final int bytes;
+
+    Call(int frame, Op op, int bytes, int... args) {
+      this.frame = frame;
+      this.op = op;
+      this.bytes = bytes;
+      this.args = args;
+    }
+
+    //Tab separated: frame, op, bytes, then the integer arguments.
+    @Override
+    public String toString() {
+      StringBuilder line = new StringBuilder();
+      line.append(frame).append('\t').append(op).append('\t').append(bytes);
+      for (int arg : args) {
+        line.append('\t').append(arg);
+      }
+      return line.toString();
+    }
+  }
+
+  //Totals for one frame.
+  public static final class FrameStats {
+    public final int frame;
+    public final int[] opCounts = new int[Op.values().length];
+    public int calls, drawCalls, stateChanges, uniformCalls;
+    public long uploadedBytes, uniformBytes;
+
+    FrameStats(int frame) {
+      this.frame = frame;
+    }
+
+    public int count(Op op) {
+      return opCounts[op.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+      return "frame " + frame + ": " + calls + " calls, " + drawCalls + " draws, "
+          + stateChanges + " state changes, " + uniformCalls + " uniforms, "
+          + uploadedBytes + " bytes uploaded, " + uniformBytes + " uniform bytes";
+    }
+  }
+
+  private final GL gl;
+  private final List<Call> log = new ArrayList<Call>();
+  private final List<FrameStats> frames = new ArrayList<FrameStats>();
+  private FrameStats current = new FrameStats(0);
+  private boolean logging = true;
+  private int nextBuffer = 1;
+
+  public CaptureGL() {
+    this(null);
+  }
+
+  public CaptureGL(GL gl) {
+    this.gl = gl;
+  }
+
+  //The full call log can get big over many frames, per frame totals are kept either way.
+  public void setLogging(boolean logging) {
+    this.logging = logging;
+  }
+
+  //Close the current frame's totals and start counting the next.
+  public FrameStats beginFrame() {
+    FrameStats finished = current;
+    frames.add(finished);
+    current = new FrameStats(finished.frame + 1);
+    return finished;
+  }
+
+  //Totals so far for the frame being recorded.
+  public FrameStats getCurrentFrame() {
+    return current;
+  }
+
+  //Every frame finished by beginFrame(), oldest first.
+  public List<FrameStats> getFrames() {
+    return frames;
+  }
+
+  public List<Call> getCalls() {
+    return log;
+  }
+
+  public void clear() {
+    log.clear();
+    frames.clear();
+    current = new FrameStats(0);
+  }
+
+  //The call log, one tab separated line per call under a header.
+  public void writeLog(Appendable out) throws IOException {
+    out.append("frame\top\tbytes\targs\n");
+    for (Call call : log) {
+      out.append(call.toString()).append('\n');
+    }
+  }
+
+  private void record(Op op, int bytes, int... args) {
+    current.calls++;
+    current.opCounts[op.ordinal()]++;
+    if (op.stateChange) { current.stateChanges++; }
+
+    switch (op) {
+      case DRAW_ELEMENTS:
+      case DRAW_ARRAYS:
+        current.drawCalls++;
+        break;
+      case BUFFER_DATA:
+      case BUFFER_SUB_DATA:
+        current.uploadedBytes += bytes;
+        break;
+      case UNIFORM_3FV:
+      case UNIFORM_4FV:
+      case UNIFORM_MATRIX_4FV:
+        current.uniformCalls++;
+        current.uniformBytes += bytes;
+        break;
+      default:
+        break;
+    }
+
+    if (logging) {
+      log.add(new Call(current.frame, op, bytes, args));
+    }
+  }
+
+  @Override
+  public void glUseProgram(int program) {
+    record(Op.USE_PROGRAM, 0, program);
+    if (gl != null) { gl.glUseProgram(program); }
+  }
+
+  @Override
+  public void glEnableVertexAttribArray(int index) {
+    record(Op.ENABLE_ATTRIB, 0, index);
+    if (gl != null) { gl.glEnableVertexAttribArray(index); }
+  }
+
+  @Override
+  public void glDisableVertexAttribArray(int index) {
+    record(Op.DISABLE_ATTRIB, 0, index);
+    if (gl != null) { gl.glDisableVertexAttribArray(index); }
+  }
+
+  @Override
+  public void glGenBuffers(int n, int[] buffers, int offset) {
+    if (gl != null) {
+      gl.glGenBuffers(n, buffers, offset);
+    } else {
+      for (int i = 0; i < n; i++) {
+        buffers[offset + i] = nextBuffer++;
+      }
+    }
+    record(Op.GEN_BUFFERS, 0, n);
+  }
+
+  @Override
+  public void glDeleteBuffers(int n, int[] buffers, int offset) {
+    record(Op.DELETE_BUFFERS, 0, n);
+    if (gl != null) { gl.glDeleteBuffers(n, buffers, offset); }
+  }
+
+  @Override
+  public void glBindBuffer(int target, int buffer) {
+    record(Op.BIND_BUFFER, 0, target, buffer);
+    if (gl != null) { gl.glBindBuffer(target, buffer); }
+  }
+
+  @Override
+  public void glBufferData(int target, int size, Buffer data, int usage) {
+    record(Op.BUFFER_DATA, size, target, size, usage);
+    if (gl != null) { gl.glBufferData(target, size, data, usage); }
+  }
+
+  @Override
+  public void glBufferSubData(int target, int offset, int size, Buffer data) {
+    record(Op.BUFFER_SUB_DATA, size, target, offset, size);
+    if (gl != null) { gl.glBufferSubData(target, offset, size, data); }
+  }
+
+  @Override
+  public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+                                    int offset) {
+    record(Op.ATTRIB_POINTER, 0, index, size, type, normalized ? 1 : 0, stride, offset);
+    if (gl != null) { gl.glVertexAttribPointer(index, size, type, normalized, stride, offset); }
+  }
+
+  @Override
+  public void glDrawElements(int mode, int count, int type, int offset) {
+    record(Op.DRAW_ELEMENTS, 0, mode, count, type, offset);
+    if (gl != null) { gl.glDrawElements(mode, count, type, offset); }
+  }
+
+  @Override
+  public void glDrawArrays(int mode, int first, int count) {
+    record(Op.DRAW_ARRAYS, 0, mode, first, count);
+    if (gl != null) { gl.glDrawArrays(mode, first, count); }
+  }
+
+  @Override
+  public void glUniform3fv(int location, int count, float[] v, int offset) {
+    record(Op.UNIFORM_3FV, count * 3 * 4, location, count);
+    if (gl != null) { gl.glUniform3fv(location, count, v, offset); }
+  }
+
+  @Override
+  public void glUniform4fv(int location, int count, float[] v, int offset) {
+    record(Op.UNIFORM_4FV, count * 4 * 4, location, count);
+    if (gl != null) { gl.glUniform4fv(location, count, v, offset); }
+  }
+
+  @Override
+  public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value,
+                                 int offset) {
+    record(Op.UNIFORM_MATRIX_4FV, count * 16 * 4, location, count);
+    if (gl != null) { gl.glUniformMatrix4fv(location, count, transpose, value, offset); }
+  }
+}
@@ -0,0 +1,83 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A float GpuBuffer that is written in place rather than replaced.
+ * Writes go straight into the direct buffer and widen a dirty range, so the next bind only
+ * sends the floats between the first and last write. Nothing is allocated after construction.
+ */
+public class DynamicFloatBuffer extends GpuBuffer {
+  private final FloatBuffer floats;
+  private int dirtyStart, dirtyEnd; //Dirty range in floats, end exclusive. Empty when start >= end.
+
+  public DynamicFloatBuffer(float[] initial) {
+    this(GL.GL_ARRAY_BUFFER, initial);
+  }
+
+  public DynamicFloatBuffer(int target, float[] initial) {
+    super(target, DYNAMIC, toFloatBuffer(initial));
+    floats = (FloatBuffer) data;
+    clearDirtyRange();
+  }
+
+  public float get(int index) {
+    return floats.get(index);
+  }
+
+  //Single element write.
+  public void put(int index, float value) {
+    floats.put(index, value);
+    widenDirtyRange(index, index + 1);
+  }
+
+  //Range write of length floats from src, starting at index.
+  public void put(int index, float[] src, int srcOffset, int length) {
+    floats.position(index);
+    floats.put(src, srcOffset, length);
+    floats.position(0);
+    widenDirtyRange(index, index + length);
+  }
+
+  //Write the same value to every stride'th float, e.g one channel of a vertex stream.
+  public void fill(int index, int count, int stride, float value) {
+    for (int i = 0; i < count; i++) {
+      floats.put(index + i * stride, value);
+    }
+    widenDirtyRange(index, index + (count - 1) * stride + 1);
+  }
+
+  public int getDirtyStart() {
+    return dirtyStart;
+  }
+
+  public int getDirtyEnd() {
+    return dirtyEnd;
+  }
+
+  @Override
+  protected void upload(GL gl) {
+    super.upload(gl);
+    clearDirtyRange();
+  }
+
+  @Override
+  protected void uploadChanged(GL gl) {
+    if (dirtyStart >= dirtyEnd) { return; }
+
+    floats.position(dirtyStart);
+    gl.glBufferSubData(getTarget(), dirtyStart * 4, (dirtyEnd - dirtyStart) * 4, floats);
+    floats.position(0);
+  }
+
+  private void widenDirtyRange(int start, int end) {
+    if (start < dirtyStart) { dirtyStart = start; }
+    if (end > dirtyEnd) { dirtyEnd = end; }
+    markDirty();
+  }
+
+  private void clearDirtyRange() {
+    dirtyStart = Integer.MAX_VALUE;
+    dirtyEnd = 0;
+  }
+}
@@ -0,0 +1,48 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl;
+
+import java.nio.Buffer;
+
+/**
+ * Thin facade over the GLES20 calls made by the render items, so they can be driven by
+ * something other than a live GL context. Constants match their GLES20 values.
+ */
+public interface GL {
+  int GL_FLOAT = 0x1406;
+  int GL_UNSIGNED_BYTE = 0x1401;
+  int GL_UNSIGNED_SHORT = 0x1403;
+  int GL_TRIANGLES = 0x0004;
+  int GL_ARRAY_BUFFER = 0x8892;
+  int GL_ELEMENT_ARRAY_BUFFER = 0x8893;
+  int GL_STATIC_DRAW = 0x88E4;
+  int GL_DYNAMIC_DRAW = 0x88E8;
+
+  void glUseProgram(int program);
+
+  void glEnableVertexAttribArray(int index);
+
+  void glDisableVertexAttribArray(int index);
+
+  void glGenBuffers(int n, int[] buffers, int offset);
+
+  void glDeleteBuffers(int n, int[] buffers, int offset);
+
+  void glBindBuffer(int target, int buffer);
+
+  void glBufferData(int target, int size, Buffer data, int usage);
+
+  void glBufferSubData(int target, int offset, int size, Buffer data);
+
+  //Offset variant only, all geometry is read from the bound buffer object.
+  void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+                             int offset);
+
+  void glDrawElements(int mode, int count, int type, int offset);
+
+  void glDrawArrays(int mode, int first, int count);
+
+  void glUniform3fv(int location, int count, float[] v, int offset);
+
+  void glUniform4fv(int location, int count, float[] v, int offset);
+
+  void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+}
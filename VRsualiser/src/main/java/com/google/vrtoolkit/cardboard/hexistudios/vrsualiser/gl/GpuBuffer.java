@@ -0,0 +1,161 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.Bounds;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A GL buffer object along with the client-side copy it is filled from.
+ * The GL side is created lazily on the first bind (which always happens on the GL thread), and
+ * the client data is only re-sent to the driver when it has been changed since the last bind.
+ */
+public class GpuBuffer {
+  //Usage hints. Static for geometry that is uploaded once, dynamic for anything rewritten per frame.
+  public static final int STATIC = GL.GL_STATIC_DRAW;
+  public static final int DYNAMIC = GL.GL_DYNAMIC_DRAW;
+
+  private final int target, usage;
+  private final int[] handle = new int[1];
+  protected Buffer data;
+  private int dataType, elementSize, allocatedBytes;
+  private boolean dirty = true;
+
+  public GpuBuffer(int target, int usage, Buffer data) {
+    this.target = target;
+    this.usage = usage;
+    setData(data);
+  }
+
+  //Vertex attribute stream (positions, colours, normals) from a float array.
+  public static GpuBuffer attribute(float[] values, int usage) {
+    return new GpuBuffer(GL.GL_ARRAY_BUFFER, usage, toFloatBuffer(values));
+  }
+
+  public static GpuBuffer indices(byte[] values) {
+    ByteBuffer byteBuf = ByteBuffer.allocateDirect(values.length);
+    byteBuf.put(values);
+    byteBuf.position(0);
+    return new GpuBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, STATIC, byteBuf);
+  }
+
+  public static GpuBuffer indices(short[] values) {
+    ByteBuffer byteBuf = ByteBuffer.allocateDirect(values.length * 2);
+    byteBuf.order(ByteOrder.nativeOrder());
+    ShortBuffer shortBuf = byteBuf.asShortBuffer();
+    shortBuf.put(values);
+    shortBuf.position(0);
+    return new GpuBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, STATIC, shortBuf);
+  }
+
+  public static FloatBuffer toFloatBuffer(float[] values) {
+    ByteBuffer byteBuf = ByteBuffer.allocateDirect(values.length * 4);
+    byteBuf.order(ByteOrder.nativeOrder());
+    FloatBuffer floatBuf = byteBuf.asFloatBuffer();
+    floatBuf.put(values);
+    floatBuf.position(0);
+    return floatBuf;
+  }
+
+  //Swap the client side data, it will be sent to the driver on the next bind.
+  public void setData(Buffer data) {
+    if (data instanceof FloatBuffer) {
+      dataType = GL.GL_FLOAT;
+      elementSize = 4;
+    } else if (data instanceof ShortBuffer) {
+      dataType = GL.GL_UNSIGNED_SHORT;
+      elementSize = 2;
+    } else if (data instanceof ByteBuffer) {
+      dataType = GL.GL_UNSIGNED_BYTE;
+      elementSize = 1;
+    } else {
+      throw new IllegalArgumentException("Unsupported buffer type: " + data);
+    }
+
+    this.data = data;
+    dirty = true;
+  }
+
+  //Flag the client side data as changed so it is re-uploaded on the next bind.
+  public void markDirty() {
+    dirty = true;
+  }
+
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  //Bind to this buffer's target, creating and uploading it first if needed.
+  public void bind(GL gl) {
+    if (handle[0] == 0) {
+      gl.glGenBuffers(1, handle, 0);
+    }
+
+    gl.glBindBuffer(target, handle[0]);
+
+    if (dirty) {
+      upload(gl);
+      dirty = false;
+    }
+  }
+
+  protected void upload(GL gl) {
+    int bytes = data.capacity() * elementSize;
+
+    if (bytes == allocatedBytes) {
+      uploadChanged(gl); //Same size, reuse the existing storage.
+    } else {
+      data.position(0);
+      gl.glBufferData(target, bytes, data, usage);
+      allocatedBytes = bytes;
+    }
+  }
+
+  //Re-send data into already allocated storage. Sub-classes that track what changed can send less.
+  protected void uploadChanged(GL gl) {
+    data.position(0);
+    gl.glBufferSubData(target, 0, allocatedBytes, data);
+  }
+
+  //Delete the GL side. The client copy is kept so it can be recreated on the next bind.
+  public void release(GL gl) {
+    if (handle[0] != 0) {
+      gl.glDeleteBuffers(1, handle, 0);
+      handle[0] = 0;
+    }
+    allocatedBytes = 0;
+    dirty = true;
+  }
+
+  //Fit out around the client side data, read as packed x, y, z floats.
+  public void getBounds(Bounds out) {
+    out.setEmpty();
+    if (!(data instanceof FloatBuffer)) { return; }
+
+    FloatBuffer floats = (FloatBuffer) data;
+    for (int i = 0; i + 2 < floats.capacity(); i += 3) {
+      out.grow(floats.get(i), floats.get(i + 1), floats.get(i + 2));
+    }
+  }
+
+  public int getHandle() {
+    return handle[0];
+  }
+
+  public int getTarget() {
+    return target;
+  }
+
+  //GL type of each element, e.g GL_UNSIGNED_SHORT for a short index buffer.
+  public int getType() {
+    return dataType;
+  }
+
+  //Number of elements (floats, shorts or bytes) in the client side data.
+  public int getCount() {
+    return data.capacity();
+  }
+}
@@ -0,0 +1,220 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Saves generated meshes to disk and maps them back in on later runs, so big meshes cost a file
+ * read rather than a rebuild. Loaded buffers are views straight onto the mapped file, nothing is
+ * parsed per vertex.
+ *
+ * File layout, all in native byte order: a 32 byte header (magic, version, vertex count, index
+ * count, block flags, payload length, CRC32 of the payload), then the vertex, normal, colour and
+ * index blocks, each starting on a 16 byte boundary. A file with the wrong magic (which includes
+ * one written with the other byte order), version, length or checksum is ignored and rebuilt.
+ */
+public class MeshCache {
+  public interface Generator {
+    MeshData generate();
+  }
+
+  private static final int MAGIC = 0x56524D43; //"VRMC"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 32;
+  private static final int ALIGN = 16;
+  private static final int HAS_NORMALS = 1, HAS_COLOURS = 2;
+  private static final int CHECKSUM_CHUNK = 64 * 1024;
+
+  private final File dir;
+  private final byte[] checksumChunk = new byte[CHECKSUM_CHUNK];
+  private int hits, misses;
+
+  //dir may be null, in which case meshes are always generated and never saved.
+  public MeshCache(File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Mesh for key, from disk if a valid copy is there, otherwise from the generator (and saved).
+   * Keys should change whenever the generator's output would, e.g "trianglecube-3-v1".
+   */
+  public MeshData get(String key, Generator generator) {
+    if (!key.matches("[A-Za-z0-9_\\-]+")) {
+      throw new IllegalArgumentException("Bad mesh key: " + key);
+    }
+
+    File file = dir != null ? new File(dir, key + ".mesh") : null;
+    MeshData data = file != null ? load(file) : null;
+    if (data != null) {
+      hits++;
+      return data;
+    }
+
+    misses++;
+    data = generator.generate();
+    if (file != null) {
+      save(file, data);
+    }
+    return data;
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  public int getMisses() {
+    return misses;
+  }
+
+  private static int align(int bytes) {
+    return (bytes + ALIGN - 1) & -ALIGN;
+  }
+
+  //Offsets of the vertex, normal, colour and index blocks, then the end of the payload.
+  private static int[] layout(int vertexCount, int indexCount, int flags) {
+    int[] offsets = new int[5];
+    int offset = HEADER_BYTES;
+    offsets[0] = offset;
+    offset = align(offset + vertexCount * 3 * 4);
+    offsets[1] = offset;
+    offset = align(offset + ((flags & HAS_NORMALS) != 0 ? vertexCount * 3 * 4 : 0));
+    offsets[2] = offset;
+    offset = align(offset + ((flags & HAS_COLOURS) != 0 ? vertexCount * 4 * 4 : 0));
+    offsets[3] = offset;
+    offsets[4] = offset + indexCount * 2;
+    return offsets;
+  }
+
+  //Null if the file is missing or not a valid mesh, the caller rebuilds it.
+  MeshData load(File file) {
+    if (!file.isFile() || file.length() < HEADER_BYTES || file.length() > Integer.MAX_VALUE) {
+      return null;
+    }
+
+    FileInputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      FileChannel channel = in.getChannel();
+      MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      map.order(ByteOrder.nativeOrder());
+
+      int vertexCount = map.getInt(8), indexCount = map.getInt(12), flags = map.getInt(16);
+      if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || vertexCount < 0
+          || vertexCount > 65536 || indexCount < 0 || indexCount > map.capacity()) {
+        return null;
+      }
+
+      int[] offsets = layout(vertexCount, indexCount, flags);
+      if (map.capacity() != offsets[4] || map.getInt(20) != offsets[4] - HEADER_BYTES
+          || map.getInt(24) != checksum(map, HEADER_BYTES, offsets[4])) {
+        return null;
+      }
+
+      FloatBuffer normals = (flags & HAS_NORMALS) != 0
+          ? block(map, offsets[1], vertexCount * 3 * 4).asFloatBuffer() : null;
+      FloatBuffer colours = (flags & HAS_COLOURS) != 0
+          ? block(map, offsets[2], vertexCount * 4 * 4).asFloatBuffer() : null;
+      return new MeshData(block(map, offsets[0], vertexCount * 3 * 4).asFloatBuffer(),
+          normals, colours, block(map, offsets[3], indexCount * 2).asShortBuffer());
+    } catch (IOException e) {
+      return null;
+    } finally {
+      close(in); //The mapping stays valid after the channel is closed.
+    }
+  }
+
+  //Written to a temporary file then renamed, so a crash mid-write never leaves a partial mesh.
+  void save(File file, MeshData data) {
+    int flags = (data.normals != null ? HAS_NORMALS : 0) | (data.colours != null ? HAS_COLOURS : 0);
+    int[] offsets = layout(data.vertexCount, data.indexCount, flags);
+
+    ByteBuffer out = ByteBuffer.allocateDirect(offsets[4]);
+    out.order(ByteOrder.nativeOrder());
+    put(block(out, offsets[0], data.vertexCount * 3 * 4).asFloatBuffer(), data.vertices);
+    if (data.normals != null) {
+      put(block(out, offsets[1], data.vertexCount * 3 * 4).asFloatBuffer(), data.normals);
+    }
+    if (data.colours != null) {
+      put(block(out, offsets[2], data.vertexCount * 4 * 4).asFloatBuffer(), data.colours);
+    }
+    ShortBuffer indices = data.indices.duplicate();
+    indices.position(0);
+    block(out, offsets[3], data.indexCount * 2).asShortBuffer().put(indices);
+
+    out.putInt(0, MAGIC);
+    out.putInt(4, VERSION);
+    out.putInt(8, data.vertexCount);
+    out.putInt(12, data.indexCount);
+    out.putInt(16, flags);
+    out.putInt(20, offsets[4] - HEADER_BYTES);
+    out.putInt(24, checksum(out, HEADER_BYTES, offsets[4]));
+
+    File temp = new File(file.getPath() + ".tmp");
+    FileOutputStream stream = null;
+    try {
+      stream = new FileOutputStream(temp);
+      FileChannel channel = stream.getChannel();
+      out.position(0);
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+      stream.getFD().sync();
+      close(stream);
+      stream = null;
+      if (!temp.renameTo(file)) {
+        temp.delete();
+      }
+    } catch (IOException e) {
+      temp.delete(); //Only a cache, the mesh is regenerated next time.
+    } finally {
+      close(stream);
+    }
+  }
+
+  //length bytes from offset, as its own native order buffer.
+  private static ByteBuffer block(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.limit(offset + length);
+    return view.slice().order(ByteOrder.nativeOrder());
+  }
+
+  private static void put(FloatBuffer out, FloatBuffer in) {
+    FloatBuffer source = in.duplicate();
+    source.position(0);
+    out.put(source);
+  }
+
+  //CRC32 of bytes [from, to), a chunk at a time. CRC32 can't read a ByteBuffer before API 26.
+  private int checksum(ByteBuffer buffer, int from, int to) {
+    CRC32 crc = new CRC32();
+    ByteBuffer view = buffer.duplicate();
+    view.position(from);
+    view.limit(to);
+    while (view.hasRemaining()) {
+      int length = Math.min(view.remaining(), checksumChunk.length);
+      view.get(checksumChunk, 0, length);
+      crc.update(checksumChunk, 0, length);
+    }
+    return (int) crc.getValue();
+  }
+
+  private static void close(Closeable closeable) {
+    if (closeable == null) { return; }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      //Nothing more to do.
+    }
+  }
+}
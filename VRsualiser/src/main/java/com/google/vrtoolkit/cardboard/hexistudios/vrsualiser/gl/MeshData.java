@@ -0,0 +1,57 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Indexed mesh geometry held in native order buffers, ready to hand straight to GpuBuffers.
+ * Either built from arrays or mapped from a MeshCache file. Normals and colours are optional.
+ */
+public class MeshData {
+  public final int vertexCount, indexCount;
+  public final FloatBuffer vertices, normals, colours;
+  public final ShortBuffer indices;
+
+  public MeshData(FloatBuffer vertices, FloatBuffer normals, FloatBuffer colours,
+                  ShortBuffer indices) {
+    this.vertices = vertices;
+    this.normals = normals;
+    this.colours = colours;
+    this.indices = indices;
+    vertexCount = vertices.capacity() / 3;
+    indexCount = indices.capacity();
+  }
+
+  public static MeshData fromArrays(float[] vertices, float[] normals, float[] colours,
+                                    short[] indices) {
+    ByteBuffer indexBytes = ByteBuffer.allocateDirect(indices.length * 2);
+    indexBytes.order(ByteOrder.nativeOrder());
+    ShortBuffer indexBuf = indexBytes.asShortBuffer();
+    indexBuf.put(indices);
+    indexBuf.position(0);
+
+    return new MeshData(GpuBuffer.toFloatBuffer(vertices),
+        normals != null ? GpuBuffer.toFloatBuffer(normals) : null,
+        colours != null ? GpuBuffer.toFloatBuffer(colours) : null,
+        indexBuf);
+  }
+
+  //GL buffers over this data, no copies made.
+  public GpuBuffer vertexBuffer() {
+    return new GpuBuffer(GL.GL_ARRAY_BUFFER, GpuBuffer.STATIC, vertices);
+  }
+
+  public GpuBuffer normalBuffer() {
+    return normals != null ? new GpuBuffer(GL.GL_ARRAY_BUFFER, GpuBuffer.STATIC, normals) : null;
+  }
+
+  public GpuBuffer colourBuffer() {
+    return colours != null ? new GpuBuffer(GL.GL_ARRAY_BUFFER, GpuBuffer.STATIC, colours) : null;
+  }
+
+  public GpuBuffer indexBuffer() {
+    return new GpuBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, GpuBuffer.STATIC, indices);
+  }
+}
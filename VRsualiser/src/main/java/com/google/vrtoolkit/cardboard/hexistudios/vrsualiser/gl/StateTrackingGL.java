@@ -0,0 +1,262 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl;
+
+import java.nio.Buffer;
+import java.util.Arrays;
+
+/**
+ * Sits in front of another GL and keeps a shadow copy of the state we set: the current program,
+ * enabled attribute arrays, bound buffers, attribute pointers and the last value of each uniform.
+ * Calls that would not change anything are dropped before they reach the driver.
+ *
+ * The shadow copy is only right as long as nothing else touches GL, so invalidate() must be
+ * called whenever something might have (e.g at the start of each frame, as the Cardboard
+ * distortion pass runs between frames). Like the GL it wraps, only use it on the GL thread.
+ */
+public class StateTrackingGL implements GL {
+  //Uniform and attribute locations are small ints, anything past these is passed straight on.
+  private static final int MAX_UNIFORMS = 64;
+  private static final int MAX_ATTRIBS = 16;
+
+  private final GL gl;
+
+  private boolean known;
+  private int program;
+  private int arrayBuffer, elementBuffer;
+  private int attribsKnown, attribsEnabled; //Bit per attribute index.
+
+  //Per attribute: the array buffer it reads from then size, type, normalized, stride, offset.
+  private final int[] attribPointers = new int[MAX_ATTRIBS * 6];
+  private final boolean[] attribPointerSet = new boolean[MAX_ATTRIBS];
+
+  //Last value sent to each uniform location of the current program, 16 floats each.
+  private final float[] uniforms = new float[MAX_UNIFORMS * 16];
+  private final int[] uniformKind = new int[MAX_UNIFORMS];
+  private static final int UNSET = 0, VEC3 = 1, MAT4 = 2;
+
+  private int issued, elided;
+
+  public StateTrackingGL(GL gl) {
+    this.gl = gl;
+  }
+
+  //Forget everything, the next call of each kind goes through regardless.
+  public void invalidate() {
+    known = false;
+    arrayBuffer = 0;
+    elementBuffer = 0;
+    attribsKnown = 0;
+    attribsEnabled = 0;
+    Arrays.fill(attribPointerSet, false);
+    Arrays.fill(uniformKind, UNSET);
+  }
+
+  //Calls passed on and dropped since the last resetCounts().
+  public int getIssuedCalls() {
+    return issued;
+  }
+
+  public int getElidedCalls() {
+    return elided;
+  }
+
+  public void resetCounts() {
+    issued = 0;
+    elided = 0;
+  }
+
+  private void elide() {
+    elided++;
+  }
+
+  @Override
+  public void glUseProgram(int program) {
+    if (known && this.program == program) {
+      elide();
+      return;
+    }
+
+    issued++;
+    gl.glUseProgram(program);
+    this.program = program;
+    known = true;
+    Arrays.fill(uniformKind, UNSET); //Uniform values belong to the program.
+  }
+
+  @Override
+  public void glEnableVertexAttribArray(int index) {
+    int bit = index >= 0 && index < MAX_ATTRIBS ? 1 << index : 0;
+    if ((attribsKnown & attribsEnabled & bit) != 0) {
+      elide();
+      return;
+    }
+
+    issued++;
+    gl.glEnableVertexAttribArray(index);
+    attribsKnown |= bit;
+    attribsEnabled |= bit;
+  }
+
+  @Override
+  public void glDisableVertexAttribArray(int index) {
+    int bit = index >= 0 && index < MAX_ATTRIBS ? 1 << index : 0;
+    if ((attribsKnown & ~attribsEnabled & bit) != 0) {
+      elide();
+      return;
+    }
+
+    issued++;
+    gl.glDisableVertexAttribArray(index);
+    attribsKnown |= bit;
+    attribsEnabled &= ~bit;
+  }
+
+  @Override
+  public void glGenBuffers(int n, int[] buffers, int offset) {
+    issued++;
+    gl.glGenBuffers(n, buffers, offset);
+  }
+
+  @Override
+  public void glDeleteBuffers(int n, int[] buffers, int offset) {
+    issued++;
+    gl.glDeleteBuffers(n, buffers, offset);
+
+    //Deleting a bound buffer unbinds it, and its name can be handed out again.
+    for (int i = 0; i < n; i++) {
+      int buffer = buffers[offset + i];
+      if (buffer == arrayBuffer) { arrayBuffer = 0; }
+      if (buffer == elementBuffer) { elementBuffer = 0; }
+      for (int a = 0; a < MAX_ATTRIBS; a++) {
+        if (attribPointerSet[a] && attribPointers[a * 6] == buffer) { attribPointerSet[a] = false; }
+      }
+    }
+  }
+
+  @Override
+  public void glBindBuffer(int target, int buffer) {
+    if (target == GL_ARRAY_BUFFER && buffer != 0 && buffer == arrayBuffer) {
+      elide();
+      return;
+    }
+    if (target == GL_ELEMENT_ARRAY_BUFFER && buffer != 0 && buffer == elementBuffer) {
+      elide();
+      return;
+    }
+
+    issued++;
+    gl.glBindBuffer(target, buffer);
+    if (target == GL_ARRAY_BUFFER) { arrayBuffer = buffer; }
+    if (target == GL_ELEMENT_ARRAY_BUFFER) { elementBuffer = buffer; }
+  }
+
+  @Override
+  public void glBufferData(int target, int size, Buffer data, int usage) {
+    issued++;
+    gl.glBufferData(target, size, data, usage);
+  }
+
+  @Override
+  public void glBufferSubData(int target, int offset, int size, Buffer data) {
+    issued++;
+    gl.glBufferSubData(target, offset, size, data);
+  }
+
+  @Override
+  public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+                                    int offset) {
+    boolean tracked = index >= 0 && index < MAX_ATTRIBS && arrayBuffer != 0;
+    int p = index * 6;
+
+    if (tracked && attribPointerSet[index]
+        && attribPointers[p] == arrayBuffer
+        && attribPointers[p + 1] == size
+        && attribPointers[p + 2] == type
+        && attribPointers[p + 3] == (normalized ? 1 : 0)
+        && attribPointers[p + 4] == stride
+        && attribPointers[p + 5] == offset) {
+      elide();
+      return;
+    }
+
+    issued++;
+    gl.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+
+    if (tracked) {
+      attribPointers[p] = arrayBuffer;
+      attribPointers[p + 1] = size;
+      attribPointers[p + 2] = type;
+      attribPointers[p + 3] = normalized ? 1 : 0;
+      attribPointers[p + 4] = stride;
+      attribPointers[p + 5] = offset;
+      attribPointerSet[index] = true;
+    } else if (index >= 0 && index < MAX_ATTRIBS) {
+      attribPointerSet[index] = false;
+    }
+  }
+
+  @Override
+  public void glDrawElements(int mode, int count, int type, int offset) {
+    issued++;
+    gl.glDrawElements(mode, count, type, offset);
+  }
+
+  @Override
+  public void glDrawArrays(int mode, int first, int count) {
+    issued++;
+    gl.glDrawArrays(mode, first, count);
+  }
+
+  @Override
+  public void glUniform3fv(int location, int count, float[] v, int offset) {
+    if (count == 1 && sameUniform(location, VEC3, v, offset, 3)) {
+      elide();
+      return;
+    }
+
+    issued++;
+    gl.glUniform3fv(location, count, v, offset);
+    rememberUniform(location, count == 1 ? VEC3 : UNSET, v, offset, 3);
+  }
+
+  //Only used for arrays big enough that comparing would cost about as much as sending.
+  @Override
+  public void glUniform4fv(int location, int count, float[] v, int offset) {
+    issued++;
+    gl.glUniform4fv(location, count, v, offset);
+    rememberUniform(location, UNSET, v, offset, 4);
+  }
+
+  @Override
+  public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value,
+                                 int offset) {
+    if (count == 1 && !transpose && sameUniform(location, MAT4, value, offset, 16)) {
+      elide();
+      return;
+    }
+
+    issued++;
+    gl.glUniformMatrix4fv(location, count, transpose, value, offset);
+    rememberUniform(location, count == 1 && !transpose ? MAT4 : UNSET, value, offset, 16);
+  }
+
+  private boolean sameUniform(int location, int kind, float[] v, int offset, int length) {
+    if (location < 0 || location >= MAX_UNIFORMS || uniformKind[location] != kind) {
+      return false;
+    }
+
+    int base = location * 16;
+    for (int i = 0; i < length; i++) {
+      if (uniforms[base + i] != v[offset + i]) { return false; }
+    }
+    return true;
+  }
+
+  private void rememberUniform(int location, int kind, float[] v, int offset, int length) {
+    if (location < 0 || location >= MAX_UNIFORMS || !known) { return; }
+
+    uniformKind[location] = kind;
+    if (kind != UNSET) {
+      System.arraycopy(v, offset, uniforms, location * 16, length);
+    }
+  }
+}
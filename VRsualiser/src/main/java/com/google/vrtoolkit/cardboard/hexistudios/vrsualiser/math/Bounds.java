@@ -0,0 +1,114 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math;
+
+/**
+ * An axis aligned bounding box, stored as min x, y, z and max x, y, z.
+ * Starts out empty (min > max), so grow() can be used to build one up from points.
+ */
+public class Bounds {
+  public float minX, minY, minZ, maxX, maxY, maxZ;
+
+  public Bounds() {
+    setEmpty();
+  }
+
+  public void setEmpty() {
+    minX = minY = minZ = Float.POSITIVE_INFINITY;
+    maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+  }
+
+  public boolean isEmpty() {
+    return minX > maxX;
+  }
+
+  public void set(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+    this.minX = minX;
+    this.minY = minY;
+    this.minZ = minZ;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.maxZ = maxZ;
+  }
+
+  public void set(Bounds other) {
+    set(other.minX, other.minY, other.minZ, other.maxX, other.maxY, other.maxZ);
+  }
+
+  public void grow(float x, float y, float z) {
+    if (x < minX) { minX = x; }
+    if (y < minY) { minY = y; }
+    if (z < minZ) { minZ = z; }
+    if (x > maxX) { maxX = x; }
+    if (y > maxY) { maxY = y; }
+    if (z > maxZ) { maxZ = z; }
+  }
+
+  public void grow(Bounds other) {
+    if (other.isEmpty()) { return; }
+    grow(other.minX, other.minY, other.minZ);
+    grow(other.maxX, other.maxY, other.maxZ);
+  }
+
+  //Fit around packed x, y, z points.
+  public void setFromPoints(float[] points, int offset, int count) {
+    setEmpty();
+    for (int i = 0; i < count; i++) {
+      int p = offset + i * 3;
+      grow(points[p], points[p + 1], points[p + 2]);
+    }
+  }
+
+  /**
+   * Sets this to the box around local transformed by the column-major matrix m. Exact for
+   * translations, and still conservative (if looser) under rotation and scale.
+   */
+  public void setTransformed(Bounds local, float[] m, int offset) {
+    if (local.isEmpty()) {
+      setEmpty();
+      return;
+    }
+
+    //Arvo's method: start at the translation and add the min/max contribution of each axis.
+    float tx = m[offset + 12], ty = m[offset + 13], tz = m[offset + 14];
+    float x0 = local.minX, y0 = local.minY, z0 = local.minZ;
+    float x1 = local.maxX, y1 = local.maxY, z1 = local.maxZ;
+
+    minX = tx + lower(m[offset], x0, x1) + lower(m[offset + 4], y0, y1)
+        + lower(m[offset + 8], z0, z1);
+    maxX = tx + upper(m[offset], x0, x1) + upper(m[offset + 4], y0, y1)
+        + upper(m[offset + 8], z0, z1);
+    minY = ty + lower(m[offset + 1], x0, x1) + lower(m[offset + 5], y0, y1)
+        + lower(m[offset + 9], z0, z1);
+    maxY = ty + upper(m[offset + 1], x0, x1) + upper(m[offset + 5], y0, y1)
+        + upper(m[offset + 9], z0, z1);
+    minZ = tz + lower(m[offset + 2], x0, x1) + lower(m[offset + 6], y0, y1)
+        + lower(m[offset + 10], z0, z1);
+    maxZ = tz + upper(m[offset + 2], x0, x1) + upper(m[offset + 6], y0, y1)
+        + upper(m[offset + 10], z0, z1);
+  }
+
+  private static float lower(float e, float min, float max) {
+    return Math.min(e * min, e * max);
+  }
+
+  private static float upper(float e, float min, float max) {
+    return Math.max(e * min, e * max);
+  }
+
+  public float centreX() {
+    return (minX + maxX) * 0.5f;
+  }
+
+  public float centreY() {
+    return (minY + maxY) * 0.5f;
+  }
+
+  public float centreZ() {
+    return (minZ + maxZ) * 0.5f;
+  }
+
+  //Radius of the sphere through the box's corners, centred on the box.
+  public float radius() {
+    float dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+    return 0.5f * (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+  }
+}
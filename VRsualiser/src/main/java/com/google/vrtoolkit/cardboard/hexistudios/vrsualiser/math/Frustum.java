@@ -0,0 +1,57 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math;
+
+/**
+ * The six clip planes of a view frustum, taken straight from a view-projection matrix
+ * (Gribb and Hartmann). Planes point inwards, so a point is inside when every plane gives >= 0.
+ */
+public class Frustum {
+  public static final int OUTSIDE = 0, INTERSECTS = 1, INSIDE = 2;
+
+  //a, b, c, d for left, right, bottom, top, near, far.
+  private final float[] planes = new float[6 * 4];
+
+  //Extract the planes from a column-major projection x view matrix.
+  public void set(float[] viewProjection, int offset) {
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        float w = viewProjection[offset + j * 4 + 3];
+        float axis = viewProjection[offset + j * 4 + i];
+        planes[i * 8 + j] = w + axis;     //left, bottom, near.
+        planes[i * 8 + 4 + j] = w - axis; //right, top, far.
+      }
+    }
+
+    //Normalise so the d term is a true distance, not that culling needs it.
+    for (int p = 0; p < planes.length; p += 4) {
+      float length = (float) Math.sqrt(planes[p] * planes[p] + planes[p + 1] * planes[p + 1]
+          + planes[p + 2] * planes[p + 2]);
+      if (length > 0) {
+        for (int k = 0; k < 4; k++) { planes[p + k] /= length; }
+      }
+    }
+  }
+
+  //Classify a box as OUTSIDE, INTERSECTS or fully INSIDE the frustum.
+  public int classify(Bounds box) {
+    if (box.isEmpty()) { return OUTSIDE; }
+
+    int result = INSIDE;
+    for (int p = 0; p < planes.length; p += 4) {
+      float a = planes[p], b = planes[p + 1], c = planes[p + 2], d = planes[p + 3];
+
+      //Corner furthest along the plane normal, then the nearest one.
+      float far = a * (a > 0 ? box.maxX : box.minX) + b * (b > 0 ? box.maxY : box.minY)
+          + c * (c > 0 ? box.maxZ : box.minZ) + d;
+      if (far < 0) { return OUTSIDE; }
+
+      float near = a * (a > 0 ? box.minX : box.maxX) + b * (b > 0 ? box.minY : box.maxY)
+          + c * (c > 0 ? box.minZ : box.maxZ) + d;
+      if (near < 0) { result = INTERSECTS; }
+    }
+    return result;
+  }
+
+  public boolean intersects(Bounds box) {
+    return classify(box) != OUTSIDE;
+  }
+}
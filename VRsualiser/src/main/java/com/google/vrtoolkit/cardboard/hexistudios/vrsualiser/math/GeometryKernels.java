@@ -0,0 +1,143 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math;
+
+/**
+ * Bulk vertex operations over packed x, y, z float arrays. Each is a flat float loop over a range
+ * of vertices, split across cores by Parallel once the range is big enough to be worth the
+ * hand-off (see PARALLEL_CHUNK).
+ */
+public final class GeometryKernels {
+  //Fewest vertices per thread. Below ~4k the hand-off costs more than the work saved.
+  public static final int PARALLEL_CHUNK = 4096;
+
+  private GeometryKernels() {}
+
+  /**
+   * Maps count points on the surface of the [-1, 1] cube onto the unit sphere, in place.
+   * Spreads them far more evenly than normalising would.
+   */
+  public static void spherify(final float[] points, int count) {
+    Parallel.forRange(count, PARALLEL_CHUNK, new Parallel.RangeTask() {
+      @Override
+      public void run(int from, int to) {
+        spherify(points, from, to);
+      }
+    });
+  }
+
+  //Vertices [from, to) only, on this thread.
+  public static void spherify(float[] points, int from, int to) {
+    for (int i = from * 3; i < to * 3; i += 3) {
+      float x = points[i], y = points[i + 1], z = points[i + 2];
+      float x2 = x * x, y2 = y * y, z2 = z * z;
+
+      points[i] = x * (float) Math.sqrt(1f - y2 / 2f - z2 / 2f + y2 * z2 / 3f);
+      points[i + 1] = y * (float) Math.sqrt(1f - z2 / 2f - x2 / 2f + z2 * x2 / 3f);
+      points[i + 2] = z * (float) Math.sqrt(1f - x2 / 2f - y2 / 2f + x2 * y2 / 3f);
+    }
+  }
+
+  //out = in * scale + (dx, dy, dz) for count vertices. in and out may be the same array.
+  public static void scaleTranslate(final float[] in, final float[] out, int count,
+                                    final float scale, final float dx, final float dy,
+                                    final float dz) {
+    Parallel.forRange(count, PARALLEL_CHUNK, new Parallel.RangeTask() {
+      @Override
+      public void run(int from, int to) {
+        for (int i = from * 3; i < to * 3; i += 3) {
+          out[i] = in[i] * scale + dx;
+          out[i + 1] = in[i + 1] * scale + dy;
+          out[i + 2] = in[i + 2] * scale + dz;
+        }
+      }
+    });
+  }
+
+  /**
+   * Smooth per-vertex normals for an indexed triangle mesh: each vertex gets the sum of its faces'
+   * normals, weighted by their area, then normalised. normals must hold vertexCount * 3 floats.
+   * Faces are summed on one thread (shared vertices would race), normalising is split.
+   */
+  public static void vertexNormals(float[] vertices, int vertexCount, short[] indices,
+                                   int indexCount, final float[] normals) {
+    for (int i = 0; i < vertexCount * 3; i++) {
+      normals[i] = 0;
+    }
+
+    for (int i = 0; i < indexCount; i += 3) {
+      int a = (indices[i] & 0xFFFF) * 3;
+      int b = (indices[i + 1] & 0xFFFF) * 3;
+      int c = (indices[i + 2] & 0xFFFF) * 3;
+
+      float ux = vertices[b] - vertices[a];
+      float uy = vertices[b + 1] - vertices[a + 1];
+      float uz = vertices[b + 2] - vertices[a + 2];
+      float vx = vertices[c] - vertices[a];
+      float vy = vertices[c + 1] - vertices[a + 1];
+      float vz = vertices[c + 2] - vertices[a + 2];
+
+      //Unnormalised cross product, its length is twice the face's area.
+      float nx = uy * vz - uz * vy;
+      float ny = uz * vx - ux * vz;
+      float nz = ux * vy - uy * vx;
+
+      normals[a] += nx;  normals[a + 1] += ny;  normals[a + 2] += nz;
+      normals[b] += nx;  normals[b + 1] += ny;  normals[b + 2] += nz;
+      normals[c] += nx;  normals[c + 1] += ny;  normals[c + 2] += nz;
+    }
+
+    Parallel.forRange(vertexCount, PARALLEL_CHUNK, new Parallel.RangeTask() {
+      @Override
+      public void run(int from, int to) {
+        normalise(normals, from, to);
+      }
+    });
+  }
+
+  //Scale vertices [from, to) to unit length, leaving zero length ones alone.
+  public static void normalise(float[] vectors, int from, int to) {
+    for (int i = from * 3; i < to * 3; i += 3) {
+      float x = vectors[i], y = vectors[i + 1], z = vectors[i + 2];
+      float lengthSquared = x * x + y * y + z * z;
+      if (lengthSquared > 0) {
+        float inverse = 1f / (float) Math.sqrt(lengthSquared);
+        vectors[i] = x * inverse;
+        vectors[i + 1] = y * inverse;
+        vectors[i + 2] = z * inverse;
+      }
+    }
+  }
+
+  /**
+   * Bar extrusion: sets the y of each bar's top corners to its base y plus its height.
+   * Bar b's corners are the cornersPerBar vertices starting at vertex topStart + b * cornersPerBar.
+   * Runs every frame, so the usual few hundred bars go straight to the loop without a task.
+   */
+  public static void extrudeBars(final float[] baseY, final float[] heights, int count,
+                                 final int cornersPerBar, final float[] points,
+                                 final int topStart) {
+    final int minChunk = PARALLEL_CHUNK / cornersPerBar;
+    if (!Parallel.worthSplitting(count, minChunk)) {
+      extrudeBars(baseY, heights, 0, count, cornersPerBar, points, topStart);
+      return;
+    }
+
+    Parallel.forRange(count, minChunk, new Parallel.RangeTask() {
+      @Override
+      public void run(int from, int to) {
+        extrudeBars(baseY, heights, from, to, cornersPerBar, points, topStart);
+      }
+    });
+  }
+
+  //Bars [from, to) only, on this thread.
+  public static void extrudeBars(float[] baseY, float[] heights, int from, int to,
+                                 int cornersPerBar, float[] points, int topStart) {
+    for (int b = from; b < to; b++) {
+      float top = baseY[b] + heights[b];
+      int offset = (topStart + b * cornersPerBar) * 3 + 1;
+      for (int k = 0; k < cornersPerBar; k++) {
+        points[offset + k * 3] = top;
+      }
+    }
+  }
+}
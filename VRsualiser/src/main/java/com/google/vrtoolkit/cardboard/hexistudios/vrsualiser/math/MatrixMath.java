@@ -0,0 +1,55 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math;
+
+/**
+ * Plain Java versions of the android.opengl.Matrix operations the render code uses, with the same
+ * column-major layout and argument order, so the render items need no Android classes.
+ * As with android.opengl.Matrix, results must not overlap their inputs.
+ */
+public final class MatrixMath {
+
+  private MatrixMath() {}
+
+  public static void setIdentityM(float[] m, int offset) {
+    for (int i = 0; i < 16; i++) {
+      m[offset + i] = (i % 5 == 0) ? 1 : 0;
+    }
+  }
+
+  //Translate m in place, as if multiplied on the right by a translation matrix.
+  public static void translateM(float[] m, int offset, float x, float y, float z) {
+    for (int i = 0; i < 4; i++) {
+      m[offset + 12 + i] += m[offset + i] * x + m[offset + 4 + i] * y + m[offset + 8 + i] * z;
+    }
+  }
+
+  //result = lhs x rhs.
+  public static void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset,
+                                float[] rhs, int rhsOffset) {
+    for (int col = 0; col < 4; col++) {
+      float r0 = rhs[rhsOffset + col * 4];
+      float r1 = rhs[rhsOffset + col * 4 + 1];
+      float r2 = rhs[rhsOffset + col * 4 + 2];
+      float r3 = rhs[rhsOffset + col * 4 + 3];
+
+      for (int row = 0; row < 4; row++) {
+        result[resultOffset + col * 4 + row] =
+            lhs[lhsOffset + row] * r0
+            + lhs[lhsOffset + 4 + row] * r1
+            + lhs[lhsOffset + 8 + row] * r2
+            + lhs[lhsOffset + 12 + row] * r3;
+      }
+    }
+  }
+
+  //resultVec = lhs x rhsVec, for 4 component vectors.
+  public static void multiplyMV(float[] resultVec, int resultOffset, float[] lhs, int lhsOffset,
+                                float[] rhsVec, int rhsOffset) {
+    float x = rhsVec[rhsOffset], y = rhsVec[rhsOffset + 1];
+    float z = rhsVec[rhsOffset + 2], w = rhsVec[rhsOffset + 3];
+
+    for (int row = 0; row < 4; row++) {
+      resultVec[resultOffset + row] = lhs[lhsOffset + row] * x + lhs[lhsOffset + 4 + row] * y
+          + lhs[lhsOffset + 8 + row] * z + lhs[lhsOffset + 12 + row] * w;
+    }
+  }
+}
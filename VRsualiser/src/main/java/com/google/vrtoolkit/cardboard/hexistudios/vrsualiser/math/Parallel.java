@@ -0,0 +1,102 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Splits a range of work across one worker per core, with the calling thread taking a share.
+ * Small ranges, and calls made from a worker, run inline. A fixed pool rather than fork-join,
+ * since ForkJoinPool needs API 21.
+ */
+public final class Parallel {
+  //One piece of a range, [from, to).
+  public interface RangeTask {
+    void run(int from, int to);
+  }
+
+  public static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+  private static final ThreadLocal<Boolean> isWorker = new ThreadLocal<Boolean>();
+  private static ExecutorService workers;
+
+  private Parallel() {}
+
+  private static synchronized ExecutorService workers() {
+    if (workers == null) {
+      workers = Executors.newFixedThreadPool(THREADS - 1, new ThreadFactory() {
+        private int count;
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+          Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+              isWorker.set(Boolean.TRUE);
+              runnable.run();
+            }
+          }, "Parallel-" + count++);
+          thread.setDaemon(true); //Never keeps the process alive.
+          return thread;
+        }
+      });
+    }
+    return workers;
+  }
+
+  //Whether forRange would actually split count, so callers can skip building a task.
+  public static boolean worthSplitting(int count, int minChunk) {
+    return Math.min(THREADS, count / Math.max(minChunk, 1)) >= 2 && isWorker.get() == null;
+  }
+
+  /**
+   * Runs task over [0, count), in pieces of at least minChunk, and returns once all are done.
+   * Anything thrown by a piece is rethrown here.
+   */
+  public static void forRange(int count, int minChunk, final RangeTask task) {
+    if (!worthSplitting(count, minChunk)) {
+      task.run(0, count);
+      return;
+    }
+
+    int chunks = Math.min(THREADS, count / Math.max(minChunk, 1));
+
+    final CountDownLatch done = new CountDownLatch(chunks - 1);
+    final Throwable[] failure = new Throwable[1];
+    ExecutorService pool = workers();
+
+    for (int c = 0; c < chunks - 1; c++) {
+      final int from = (int) ((long) count * c / chunks);
+      final int to = (int) ((long) count * (c + 1) / chunks);
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            task.run(from, to);
+          } catch (Throwable t) {
+            synchronized (failure) {
+              failure[0] = t;
+            }
+          } finally {
+            done.countDown();
+          }
+        }
+      });
+    }
+
+    task.run((int) ((long) count * (chunks - 1) / chunks), count); //Our own share.
+
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for workers", e);
+    }
+    synchronized (failure) {
+      if (failure[0] != null) {
+        throw new RuntimeException("Parallel task failed", failure[0]);
+      }
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.metrics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+
+/**
+ * Times each stage of a frame into preallocated StageTimers.
+ * Usage on the hot path is just:
+ *   long start = profiler.start();
+ *   ...
+ *   profiler.stop(FrameProfiler.DRAW_EYE, start);
+ * When disabled start() returns 0 without reading the clock and stop() returns straight away.
+ * The RENDER stage is kept separately for each renderer.
+ */
+public class FrameProfiler {
+  public static final int NEW_FRAME = 0, DRAW_EYE = 1, RENDER = 2, FFT_CAPTURE = 3,
+      WAVE_CAPTURE = 4;
+  private static final String[] STAGE_NAMES = {
+      "newFrame", "drawEye", "render", "fftCapture", "waveCapture"};
+
+  //Samples kept for rolling percentiles, a few seconds at 60fps (and two eyes).
+  private static final int WINDOW = 512;
+
+  private final StageTimer[] stages = new StageTimer[STAGE_NAMES.length];
+  private final HashMap<String, StageTimer> renderTimers = new HashMap<String, StageTimer>();
+  private final long[] percentiles = new long[4];
+  private final StringBuilder summary = new StringBuilder();
+  private volatile boolean enabled;
+
+  //Render items drawn and culled, in the last eye and over the whole session.
+  private int lastDrawn, lastCulled;
+  private long totalDrawn, totalCulled;
+
+  //GL calls made and dropped as redundant, in the last frame.
+  private int lastIssued, lastElided;
+
+  public FrameProfiler() {
+    for (int i = 0; i < stages.length; i++) {
+      stages[i] = new StageTimer(STAGE_NAMES[i], WINDOW);
+    }
+    setRenderer("unknown"); //Until told otherwise.
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  public void stop(int stage, long start) {
+    if (start != 0) {
+      stages[stage].record(System.nanoTime() - start);
+    }
+  }
+
+  //Call after each eye with how many items the scene drew and how many it culled.
+  public void countItems(int drawn, int culled) {
+    if (!enabled) { return; }
+    lastDrawn = drawn;
+    lastCulled = culled;
+    totalDrawn += drawn;
+    totalCulled += culled;
+  }
+
+  //Call once a frame with the GL calls passed on and elided by StateTrackingGL.
+  public void countGlCalls(int issued, int elided) {
+    if (!enabled) { return; }
+    lastIssued = issued;
+    lastElided = elided;
+  }
+
+  //Call on the GL thread when the active renderer changes. Only allocates for a new renderer.
+  public void setRenderer(String rendererName) {
+    StageTimer timer = renderTimers.get(rendererName);
+    if (timer == null) {
+      timer = new StageTimer(STAGE_NAMES[RENDER] + ":" + rendererName, WINDOW);
+      renderTimers.put(rendererName, timer);
+    }
+    stages[RENDER] = timer;
+  }
+
+  public StageTimer getStage(int stage) {
+    return stages[stage];
+  }
+
+  /**
+   * Short multi-line readout for the HUD, one line per stage: p50/p95/p99/max in ms.
+   * Built in a reused StringBuilder; the returned String is the only allocation.
+   */
+  public String summary() {
+    StringBuilder sb = summary;
+    sb.setLength(0);
+    for (StageTimer timer : stages) {
+      if (timer.percentiles(percentiles) == 0) { continue; }
+
+      sb.append(timer.getName()).append(' ');
+      appendMs(sb, percentiles[StageTimer.P50]);
+      sb.append('/');
+      appendMs(sb, percentiles[StageTimer.P95]);
+      sb.append('/');
+      appendMs(sb, percentiles[StageTimer.P99]);
+      sb.append('/');
+      appendMs(sb, percentiles[StageTimer.MAX]);
+      sb.append("ms\n");
+    }
+    sb.append("items ").append(lastDrawn).append(" drawn, ").append(lastCulled).append(" culled\n");
+    sb.append("gl ").append(lastIssued).append(" calls, ").append(lastElided).append(" elided");
+    return sb.toString();
+  }
+
+  //Nanoseconds as milliseconds to two places, rounded, without going through a String.
+  private static void appendMs(StringBuilder sb, long nanos) {
+    long hundredths = (nanos + 5000) / 10000;
+    sb.append(hundredths / 100).append('.');
+    if (hundredths % 100 < 10) { sb.append('0'); }
+    sb.append(hundredths % 100);
+  }
+
+  /**
+   * Writes every stage's full histogram, including every renderer seen so far, to file.
+   * Only while nothing is recording: the GL thread must be paused, it adds renderers.
+   */
+  public void dumpHistograms(File file) throws IOException {
+    PrintWriter out = new PrintWriter(new FileWriter(file));
+    try {
+      out.println("# Frame stage timings, lower_bound_ns count cumulative_fraction");
+      out.println("# Items drawn " + totalDrawn + ", culled " + totalCulled);
+      for (int i = 0; i < stages.length; i++) {
+        if (i != RENDER) { stages[i].writeHistogram(out); }
+      }
+      for (StageTimer timer : renderTimers.values()) {
+        timer.writeHistogram(out);
+      }
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.metrics;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Nanosecond timings for one stage of the frame. Keeps the most recent samples in a ring for
+ * rolling percentiles, and every sample ever recorded in a log-linear (HDR style) histogram.
+ * Everything is preallocated; record() is a couple of array writes.
+ *
+ * record() must only be called from one thread. Reading stats from another thread is allowed,
+ * it just may see a sample or two mid-update.
+ */
+public class StageTimer {
+  //Histogram buckets: values below 16 get their own bucket, above that each power of two is
+  //split into 16 linear sub-buckets, so any value is within ~6% of its bucket's lower bound.
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  //Indices into the array filled by percentiles().
+  public static final int P50 = 0, P95 = 1, P99 = 2, MAX = 3;
+
+  private final String name;
+  private final long[] ring, scratch;
+  private final long[] histogram = new long[BUCKETS];
+  private int ringPos, ringCount;
+  private long totalCount;
+
+  public StageTimer(String name, int window) {
+    this.name = name;
+    ring = new long[window];
+    scratch = new long[window];
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void record(long nanos) {
+    ring[ringPos] = nanos;
+    ringPos = ringPos + 1 == ring.length ? 0 : ringPos + 1;
+    if (ringCount < ring.length) { ringCount++; }
+
+    histogram[bucketFor(nanos)]++;
+    totalCount++;
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  //Fills out[P50], out[P95], out[P99] and out[MAX] over the recent window. Returns the sample count.
+  public int percentiles(long[] out) {
+    int count = ringCount;
+    System.arraycopy(ring, 0, scratch, 0, count);
+    Arrays.sort(scratch, 0, count);
+
+    if (count == 0) {
+      out[P50] = out[P95] = out[P99] = out[MAX] = 0;
+    } else {
+      out[P50] = scratch[(count - 1) * 50 / 100];
+      out[P95] = scratch[(count - 1) * 95 / 100];
+      out[P99] = scratch[(count - 1) * 99 / 100];
+      out[MAX] = scratch[count - 1];
+    }
+    return count;
+  }
+
+  public void reset() {
+    ringPos = ringCount = 0;
+    totalCount = 0;
+    Arrays.fill(histogram, 0);
+  }
+
+  //Writes every non-empty histogram bucket as "lower_bound_ns count cumulative_fraction".
+  public void writeHistogram(PrintWriter out) {
+    out.println("# " + name + " samples=" + totalCount);
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      if (histogram[i] == 0) { continue; }
+      cumulative += histogram[i];
+      out.println(bucketLowerBound(i) + " " + histogram[i] + " "
+          + (float) cumulative / totalCount);
+    }
+  }
+
+  static int bucketFor(long value) {
+    if (value < SUB_BUCKETS) { return value < 0 ? 0 : (int) value; }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long bucketLowerBound(int bucket) {
+    if (bucket < SUB_BUCKETS) { return bucket; }
+
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+  }
+}
@@ -0,0 +1,212 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.DynamicFloatBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GpuBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.Bounds;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.GeometryKernels;
+
+import java.util.Arrays;
+
+/**
+ * A row (or ring) of Cube-like bars merged into one mesh and drawn with a single call.
+ * All bottom vertices come first and all top vertices last, so updating every bar height
+ * is one contiguous range write into the vertex buffer.
+ *
+ * Given the bar program (bar_vertex) the vertices never change at all: the tops are built level
+ * with the bottoms, and the vertex shader raises them by their bar's entry in a uniform array.
+ * Setting the heights is then a copy of one float per bar, sent with each draw.
+ */
+public class BarMesh extends RenderItem {
+  public static final int VERTS_PER_BAR = 8;
+  //Short indices, so no more than 65536 vertices.
+  public static final int MAX_BARS = 65536 / VERTS_PER_BAR;
+  //Length of bar_vertex's u_Bands, times the four heights in each vec4.
+  public static final int MAX_SHADER_BARS = 64 * 4;
+
+  //Same faces as Cube, in Cube's vertex numbering.
+  private static final byte CUBE_INDICES[] = {
+      0, 4, 5, 0, 5, 1,
+      1, 5, 6, 1, 6, 2,
+      2, 6, 7, 2, 7, 3,
+      3, 7, 4, 3, 4, 0,
+      4, 7, 6, 4, 6, 5,
+      3, 0, 1, 3, 1, 2
+  };
+
+  //Where each Cube vertex lives in a bar's 4 bottom (0-3) or 4 top (4-7) vertices.
+  private static final int CUBE_TO_BAR[] = {0, 1, 5, 4, 3, 2, 6, 7};
+
+  private static final float BOTTOM_COLOUR[] = {0.01f, 0.29f, 0.58f, 1.0f};
+  private static final float TOP_COLOUR[] = {0.13f, 0.75f, 0.77f, 1.0f};
+
+  private final int barCount, topStart;
+  private final DynamicFloatBuffer vertexData; //Null when raised by the shader.
+  private final float[] topVertices; //Client copy of the top half, written back in one go.
+  private final float[] bands; //Heights for u_Bands, null when raised on the CPU.
+  private final float[] baseY; //Each bar's bottom y.
+  private final GpuBuffer barIndexBuf;
+  private final float baseMinY, baseMaxY; //Lowest and highest bar bottoms.
+
+  //barParams if there is a bar program and count bars fit its uniforms, otherwise fallback.
+  public static RenderParams paramsFor(int count, RenderParams barParams,
+                                       RenderParams fallback) {
+    return barParams != null && barParams.bandsParam >= 0 && count <= MAX_SHADER_BARS
+        ? barParams : fallback;
+  }
+
+  /**
+   * @param barPositions Packed x, y, z of each bar's bottom corner, like a Cube's local position.
+   * @param renderParams The bar program to raise the bars in the shader, see paramsFor().
+   */
+  public BarMesh(float[] barPositions, float width, float height, float depth,
+                 float[] localPosition, RenderParams renderParams) {
+    super(localPosition, renderParams);
+
+    barCount = barPositions.length / 3;
+    if (barCount > MAX_BARS) {
+      throw new IllegalArgumentException("Too many bars for one mesh: " + barCount);
+    }
+    boolean shaded = renderParams.bandsParam >= 0;
+    if (shaded && barCount > MAX_SHADER_BARS) {
+      throw new IllegalArgumentException("Too many bars for the bar program: " + barCount);
+    }
+
+    topStart = barCount * 4 * 3;
+    float[] vertices = new float[barCount * VERTS_PER_BAR * 3];
+    float[] colors = new float[barCount * VERTS_PER_BAR * 4];
+    float[] barAttributes = new float[barCount * VERTS_PER_BAR * 2];
+    short[] indices = new short[barCount * CUBE_INDICES.length];
+    baseY = new float[barCount];
+
+    for (int b = 0; b < barCount; b++) {
+      float x = barPositions[b * 3], y = barPositions[b * 3 + 1], z = barPositions[b * 3 + 2];
+      baseY[b] = y;
+
+      //Bottom then top, each going round the bar in the same order.
+      writeCorners(vertices, b * 4 * 3, x, y, z, width, depth);
+      writeCorners(vertices, topStart + b * 4 * 3, x, shaded ? y : y + height, z, width, depth);
+
+      for (int k = 0; k < 4; k++) {
+        System.arraycopy(BOTTOM_COLOUR, 0, colors, (b * 4 + k) * 4, 4);
+        System.arraycopy(TOP_COLOUR, 0, colors, ((barCount + b) * 4 + k) * 4, 4);
+        barAttributes[(b * 4 + k) * 2] = b;
+        barAttributes[((barCount + b) * 4 + k) * 2] = b;
+        barAttributes[((barCount + b) * 4 + k) * 2 + 1] = 1; //Top.
+      }
+
+      for (int i = 0; i < CUBE_INDICES.length; i++) {
+        int corner = CUBE_TO_BAR[CUBE_INDICES[i]];
+        int vertex = corner < 4 ? b * 4 + corner : (barCount + b) * 4 + corner - 4;
+        indices[b * CUBE_INDICES.length + i] = (short) vertex;
+      }
+    }
+
+    if (shaded) {
+      topVertices = null;
+      vertexData = null;
+      vertexBuf = GpuBuffer.attribute(vertices, GpuBuffer.STATIC);
+      bands = new float[(barCount + 3) / 4 * 4];
+      Arrays.fill(bands, 0, barCount, height);
+    } else {
+      topVertices = new float[barCount * 4 * 3];
+      System.arraycopy(vertices, topStart, topVertices, 0, topVertices.length);
+      vertexData = new DynamicFloatBuffer(vertices);
+      vertexBuf = vertexData;
+      bands = null;
+    }
+    colourBuf = GpuBuffer.attribute(colors, GpuBuffer.STATIC);
+    indexBuf = GpuBuffer.indices(indices);
+    //Each vertex's bar, and whether it's a top, for the bar program. The basic program ignores it.
+    barIndexBuf = GpuBuffer.attribute(barAttributes, GpuBuffer.STATIC);
+
+    //Scan the vertices once here, setHeights() only has to update y after this.
+    Bounds bounds = getLocalBounds();
+    baseMinY = bounds.minY;
+    baseMaxY = maxBaseY(barPositions);
+    if (shaded) { updateShadedBounds(); } //The vertices don't include the heights.
+  }
+
+  //Bottom corners are (0,0,0), (w,0,0), (w,0,d), (0,0,d) relative to the bar's position.
+  private static void writeCorners(float[] out, int offset, float x, float y, float z,
+                                   float width, float depth) {
+    out[offset] = x;              out[offset + 1] = y;  out[offset + 2] = z;
+    out[offset + 3] = x + width;  out[offset + 4] = y;  out[offset + 5] = z;
+    out[offset + 6] = x + width;  out[offset + 7] = y;  out[offset + 8] = z + depth;
+    out[offset + 9] = x;          out[offset + 10] = y; out[offset + 11] = z + depth;
+  }
+
+  private static float maxBaseY(float[] barPositions) {
+    float max = Float.NEGATIVE_INFINITY;
+    for (int i = 1; i < barPositions.length; i += 3) { max = Math.max(max, barPositions[i]); }
+    return max;
+  }
+
+  public int getBarCount() {
+    return barCount;
+  }
+
+  //Set the top of each bar to its base y + heights[i], for the first count bars.
+  public void setHeights(float[] heights, int count) {
+    if (count > barCount) { count = barCount; }
+
+    if (bands != null) {
+      //Raised in the shader, the heights go up with the next draw.
+      System.arraycopy(heights, 0, bands, 0, count);
+      updateShadedBounds();
+      return;
+    }
+
+    GeometryKernels.extrudeBars(baseY, heights, count, 4, topVertices, 0);
+
+    //Only y changes, so the bounds are the bar bottoms widened by every bar's top.
+    float minY = baseMinY, maxY = baseMaxY;
+    for (int i = 1; i < topVertices.length; i += 4 * 3) {
+      float top = topVertices[i];
+      if (top < minY) { minY = top; }
+      if (top > maxY) { maxY = top; }
+    }
+    Bounds bounds = getLocalBounds();
+    setLocalBounds(bounds.minX, minY, bounds.minZ, bounds.maxX, maxY, bounds.maxZ);
+
+    vertexData.put(topStart, topVertices, 0, count * 4 * 3);
+  }
+
+  private void updateShadedBounds() {
+    float minY = baseMinY, maxY = baseMaxY;
+    for (int b = 0; b < barCount; b++) {
+      float top = baseY[b] + bands[b];
+      if (top < minY) { minY = top; }
+      if (top > maxY) { maxY = top; }
+    }
+    Bounds bounds = getLocalBounds();
+    setLocalBounds(bounds.minX, minY, bounds.minZ, bounds.maxX, maxY, bounds.maxZ);
+  }
+
+  //Whether the bars are raised by the vertex shader rather than by rewriting the vertices.
+  public boolean isShaded() {
+    return bands != null;
+  }
+
+  @Override
+  public void draw(float[] lightPosInWorldSpace, float[] modelViewProjection) {
+    if (bands == null) {
+      super.draw(lightPosInWorldSpace, modelViewProjection);
+      return;
+    }
+    GL gl = renderParams.gl;
+    gl.glUniform4fv(renderParams.bandsParam, bands.length / 4, bands, 0);
+    gl.glEnableVertexAttribArray(renderParams.barParam);
+    barIndexBuf.bind(gl);
+    gl.glVertexAttribPointer(renderParams.barParam, 2, GL.GL_FLOAT, false, 0, 0);
+    super.draw(lightPosInWorldSpace, modelViewProjection);
+    //Left enabled, the next program's attribute at this location would read past its buffer.
+    gl.glDisableVertexAttribArray(renderParams.barParam);
+  }
+
+  //Vertex attribute stream giving each vertex's bar number, and 1 for tops or 0 for bottoms.
+  public GpuBuffer getBarIndexBuf() {
+    return barIndexBuf;
+  }
+}
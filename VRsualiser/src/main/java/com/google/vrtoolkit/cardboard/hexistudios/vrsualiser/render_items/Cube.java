@@ -1,16 +1,15 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.DynamicFloatBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GpuBuffer;
 
 /**
  * Created by Tom on 25/03/2016.
  */
 public class Cube extends RenderItem {
 
-  private float vertices[] = {};
+  private DynamicFloatBuffer vertexData;
 
   private float colors[] = {
       0.01f, 0.29f, 0.58f, 1.0f,
@@ -36,7 +35,7 @@ public class Cube extends RenderItem {
               RenderParams renderParams) {
     super(localPosition, renderParams);
 
-    vertices = new float[]{
+    float[] vertices = new float[]{
         0, 0, 0,
         0 + width, 0, 0,
         0 + width, 0 + height, 0,
@@ -47,40 +46,21 @@ public class Cube extends RenderItem {
         0, 0 + height, 0 + depth
     };
 
-    ByteBuffer byteBuf = ByteBuffer.allocateDirect(vertices.length * 4);
-    byteBuf.order(ByteOrder.nativeOrder());
-    vertexBuf = byteBuf.asFloatBuffer();
-    vertexBuf.put(vertices);
-    vertexBuf.position(0);
-
-    byteBuf = ByteBuffer.allocateDirect(colors.length * 4);
-    byteBuf.order(ByteOrder.nativeOrder());
-    colourBuf = byteBuf.asFloatBuffer();
-    colourBuf.put(colors);
-    colourBuf.position(0);
-
-    indexBuf = ByteBuffer.allocateDirect(indices.length);
-    indexBuf.put(indices);
-    indexBuf.position(0);
+    vertexData = new DynamicFloatBuffer(vertices); //Height changes with the audio.
+    vertexBuf = vertexData;
+    colourBuf = GpuBuffer.attribute(colors, GpuBuffer.STATIC);
+    indexBuf = GpuBuffer.indices(indices);
   }
 
+  //Moves the four top vertices in place, only the changed floats are re-uploaded.
   public void setHeight(float newHeight) {
-    vertices[7] = newHeight;
-    vertices[10] = newHeight;
-    vertices[19] = newHeight;
-    vertices[22] = newHeight;
-
-    ByteBuffer byteBuf = ByteBuffer.allocateDirect(vertices.length * 4);
-    byteBuf.order(ByteOrder.nativeOrder());
-    vertexBuf = byteBuf.asFloatBuffer();
-    vertexBuf.put(vertices);
-    vertexBuf.position(0);
-  }
+    if (vertexData.get(7) == newHeight) { return; }
 
-  @Override
-  public boolean redraw(float[] lightPosInEyeSpace, float[] view, float[] perspective) {
-    super.redraw(lightPosInEyeSpace, view, perspective);
-    return true;
+    vertexData.put(7, newHeight);
+    vertexData.put(10, newHeight);
+    vertexData.put(19, newHeight);
+    vertexData.put(22, newHeight);
+    invalidateBounds();
   }
 }
 
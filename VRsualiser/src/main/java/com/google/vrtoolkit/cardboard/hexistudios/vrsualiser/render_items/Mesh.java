@@ -0,0 +1,56 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.DynamicFloatBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.MeshData;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.GeometryKernels;
+
+/**
+ * An indexed triangle mesh with shared vertices. Geometry is fixed once built, while the
+ * colour stream can be rewritten in place every frame. Smooth normals are generated from the faces.
+ */
+public class Mesh extends RenderItem {
+  //Short indices, so no more than 65536 vertices.
+  public static final int MAX_VERTICES = 65536;
+
+  private final DynamicFloatBuffer colourData;
+  private final int vertexCount;
+
+  public Mesh(float[] vertices, short[] indices, float[] colors, float[] localPosition,
+              RenderParams renderParams) {
+    this(build(vertices, indices), colors, localPosition, renderParams);
+  }
+
+  //Geometry that has already been built, e.g mapped back from a MeshCache.
+  public Mesh(MeshData geometry, float[] colors, float[] localPosition,
+              RenderParams renderParams) {
+    super(localPosition, renderParams);
+
+    vertexCount = geometry.vertexCount;
+    if (vertexCount > MAX_VERTICES) {
+      throw new IllegalArgumentException("Too many vertices for short indices: " + vertexCount);
+    }
+
+    vertexBuf = geometry.vertexBuffer();
+    normalBuf = geometry.normalBuffer();
+    colourData = new DynamicFloatBuffer(colors);
+    colourBuf = colourData;
+    indexBuf = geometry.indexBuffer();
+  }
+
+  //Geometry with smooth normals generated from its faces.
+  public static MeshData build(float[] vertices, short[] indices) {
+    float[] normals = new float[vertices.length];
+    GeometryKernels.vertexNormals(vertices, vertices.length / 3, indices, indices.length, normals);
+    return MeshData.fromArrays(vertices, normals, null, indices);
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  //Replace every vertex colour (r, g, b, a per vertex) with one range write.
+  public void setColors(float[] colors) {
+    colourData.put(0, colors, 0, vertexCount * 4);
+  }
+}
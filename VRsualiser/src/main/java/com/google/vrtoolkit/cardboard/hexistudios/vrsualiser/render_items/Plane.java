@@ -1,9 +1,7 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GpuBuffer;
 
 /**
  * Created by Tom on 25/03/2016.
@@ -20,8 +18,6 @@ public class Plane extends RenderItem {
                RenderParams renderParams) {
     super(localPosition, renderParams);
 
-    ByteBuffer vertByteBuf, colourByteBuf;
-
     if (indexed) {
       vertices = new float[]{
           0, 0, 0,
@@ -37,9 +33,7 @@ public class Plane extends RenderItem {
           0.13f, 0.75f, 0.77f, 1.0f,
       };
 
-      indexBuf = ByteBuffer.allocateDirect(indices.length);
-      indexBuf.put(indices);
-      indexBuf.position(0);
+      indexBuf = GpuBuffer.indices(indices);
     } else {  //Setup non indexed buffers.
       vertices = new float[]{
           0, 0, 0,
@@ -62,23 +56,9 @@ public class Plane extends RenderItem {
       indexBuf = null;  //Super will render as arrays instead of indices if this is null.
     }
 
-    vertByteBuf = ByteBuffer.allocateDirect(vertices.length * 4);
-    vertByteBuf.order(ByteOrder.nativeOrder());
-    vertexBuf = vertByteBuf.asFloatBuffer();
-    vertexBuf.put(vertices);
-    vertexBuf.position(0);
-
-    colourByteBuf = ByteBuffer.allocateDirect(colors.length * 4);
-    colourByteBuf.order(ByteOrder.nativeOrder());
-    colourBuf = colourByteBuf.asFloatBuffer();
-    colourBuf.put(colors);
-    colourBuf.position(0);
-  }
-
-  @Override
-  public boolean redraw(float[] lightPosInEyeSpace, float[] view, float[] perspective) {
-    super.redraw(lightPosInEyeSpace, view, perspective);
-    return true;
+    //Planes never change after creation, upload once.
+    vertexBuf = GpuBuffer.attribute(vertices, GpuBuffer.STATIC);
+    colourBuf = GpuBuffer.attribute(colors, GpuBuffer.STATIC);
   }
 
 
@@ -1,87 +1,110 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GpuBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.GeometryKernels;
 
 /**
  * Created by Tom on 25/03/2016.
+ * A sphere drawn from QuadsphereGeometry, at a level of detail picked each draw from how far it is
+ * from the eye. Full detail out to detailDistance, then one level less every time the distance
+ * doubles, down to minLevel. Each level's buffers are built the first time it is used.
  */
 public class Quadsphere extends RenderItem {
+  //How far past a switching distance we must get before changing level, so it doesn't flicker.
+  private static final float HYSTERESIS = 1.1f;
+
+  //Bottom to top gradient, as BarMesh.
+  private static final float[] BOTTOM = {0.01f, 0.29f, 0.58f};
+  private static final float[] TOP = {0.13f, 0.75f, 0.77f};
 
-  private float vertices[] = {};
-
-  private float colors[] = {
-      0.0f, 1.0f, 0.0f, 1.0f,
-      0.0f, 1.0f, 0.0f, 1.0f,
-      1.0f, 0.5f, 0.0f, 1.0f,
-      1.0f, 0.5f, 0.0f, 1.0f,
-      1.0f, 0.0f, 0.0f, 1.0f,
-      1.0f, 0.0f, 0.0f, 1.0f,
-      0.0f, 0.0f, 1.0f, 1.0f,
-      1.0f, 0.0f, 1.0f, 1.0f
-  };
-
-  private byte indices[] = {
-      0, 4, 5, 0, 5, 1,
-      1, 5, 6, 1, 6, 2,
-      2, 6, 7, 2, 7, 3,
-      3, 7, 4, 3, 4, 0,
-      4, 7, 6, 4, 6, 5,
-      3, 0, 1, 3, 1, 2
-  };
-
-  public Quadsphere(float width, float height, float depth, float[] localPosition,
-                    RenderParams renderParams) {
+  private final float radius, detailDistance;
+  private final int minLevel, maxLevel;
+  private final GpuBuffer[] vertexLevels, normalLevels, colourLevels, indexLevels;
+  private int level = -1;
+
+  public Quadsphere(float radius, int minLevel, int maxLevel, float detailDistance,
+                    float[] localPosition, RenderParams renderParams) {
     super(localPosition, renderParams);
 
-    vertices = new float[]{
-        0, 0, 0,
-        0 + width, 0, 0,
-        0 + width, 0 + height, 0,
-        0, 0 + height, 0,
-        0, 0, 0 + depth,
-        0 + width, 0, 0 + depth,
-        0 + width, 0 + height, 0 + depth,
-        0, 0 + height, 0 + depth
-    };
-
-    ByteBuffer byteBuf = ByteBuffer.allocateDirect(vertices.length * 4);
-    byteBuf.order(ByteOrder.nativeOrder());
-    vertexBuf = byteBuf.asFloatBuffer();
-    vertexBuf.put(vertices);
-    vertexBuf.position(0);
-
-    byteBuf = ByteBuffer.allocateDirect(colors.length * 4);
-    byteBuf.order(ByteOrder.nativeOrder());
-    colourBuf = byteBuf.asFloatBuffer();
-    colourBuf.put(colors);
-    colourBuf.position(0);
-
-    indexBuf = ByteBuffer.allocateDirect(indices.length);
-    indexBuf.put(indices);
-    indexBuf.position(0);
+    if (minLevel < 0 || maxLevel > QuadsphereGeometry.MAX_LEVEL || minLevel > maxLevel) {
+      throw new IllegalArgumentException("Bad quadsphere levels: " + minLevel + " to " + maxLevel);
+    }
+
+    this.radius = radius;
+    this.minLevel = minLevel;
+    this.maxLevel = maxLevel;
+    this.detailDistance = detailDistance;
+
+    vertexLevels = new GpuBuffer[maxLevel + 1];
+    normalLevels = new GpuBuffer[maxLevel + 1];
+    colourLevels = new GpuBuffer[maxLevel + 1];
+    indexLevels = new GpuBuffer[maxLevel + 1];
+
+    useLevel(minLevel);
+    setLocalBounds(-radius, -radius, -radius, radius, radius, radius);
   }
 
-  public void setHeight(float newHeight) {
-    vertices[7] = newHeight;
-    vertices[10] = newHeight;
-    vertices[19] = newHeight;
-    vertices[22] = newHeight;
-
-    ByteBuffer byteBuf = ByteBuffer.allocateDirect(vertices.length * 4);
-    byteBuf.order(ByteOrder.nativeOrder());
-    vertexBuf = byteBuf.asFloatBuffer();
-    vertexBuf.put(vertices);
-    vertexBuf.position(0);
+  public int getLevel() {
+    return level;
   }
 
-  @Override
-  public boolean redraw(float[] lightPosInEyeSpace, float[] view, float[] perspective) {
-    super.redraw(lightPosInEyeSpace, view, perspective);
-    return true;
+  //Level for an eye distance: drops by one each time the distance doubles past detailDistance.
+  int levelFor(float distance) {
+    int target = maxLevel;
+    float limit = detailDistance;
+    while (target > minLevel && distance > limit) {
+      target--;
+      limit *= 2;
+    }
+    return target;
+  }
+
+  //Only move once the distance is clearly past the switching point in either direction.
+  private int selectLevel(float distance) {
+    if (level < levelFor(distance * HYSTERESIS) || level > levelFor(distance / HYSTERESIS)) {
+      return levelFor(distance);
+    }
+    return level;
   }
-}
 
+  private void useLevel(int newLevel) {
+    if (newLevel == level) { return; }
+
+    if (vertexLevels[newLevel] == null) {
+      QuadsphereGeometry geometry = QuadsphereGeometry.forLevel(newLevel);
+      int vertexCount = geometry.getVertexCount();
+
+      //Scale the vertices rather than the model matrix, the shader doesn't renormalise normals.
+      float[] vertices = new float[vertexCount * 3];
+      GeometryKernels.scaleTranslate(geometry.vertices, vertices, vertexCount, radius, 0, 0, 0);
+
+      float[] colours = new float[vertexCount * 4];
+      for (int v = 0; v < vertexCount; v++) {
+        float t = (geometry.vertices[v * 3 + 1] + 1) / 2;
+        for (int i = 0; i < 3; i++) {
+          colours[v * 4 + i] = BOTTOM[i] + (TOP[i] - BOTTOM[i]) * t;
+        }
+        colours[v * 4 + 3] = 1.0f;
+      }
+
+      vertexLevels[newLevel] = GpuBuffer.attribute(vertices, GpuBuffer.STATIC);
+      normalLevels[newLevel] = GpuBuffer.attribute(geometry.vertices, GpuBuffer.STATIC);
+      colourLevels[newLevel] = GpuBuffer.attribute(colours, GpuBuffer.STATIC);
+      indexLevels[newLevel] = GpuBuffer.indices(geometry.indices);
+    }
+
+    level = newLevel;
+    vertexBuf = vertexLevels[level];
+    normalBuf = normalLevels[level];
+    colourBuf = colourLevels[level];
+    indexBuf = indexLevels[level];
+  }
 
+  //The MVP's w row applied to the centre is its clip w, i.e its distance along the eye's view.
+  @Override
+  public void draw(float[] lightPosInWorldSpace, float[] modelViewProjection) {
+    useLevel(selectLevel(modelViewProjection[15]));
+    super.draw(lightPosInWorldSpace, modelViewProjection);
+  }
+}
@@ -0,0 +1,108 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.GeometryKernels;
+
+import java.util.Arrays;
+
+/**
+ * A unit sphere made by splitting each face of a cube into a grid and pushing every grid point
+ * out onto the sphere. Vertices are shared, including along the cube's edges, and drawn indexed.
+ * Levels are built once and memoized: asking for the same level again returns the same instance,
+ * so its arrays must be treated as read only.
+ */
+public final class QuadsphereGeometry {
+  //64 segments per cube edge, 24578 vertices and 49152 faces. One more level overflows short indices.
+  public static final int MAX_LEVEL = 6;
+
+  private static final QuadsphereGeometry[] levels = new QuadsphereGeometry[MAX_LEVEL + 1];
+
+  public final int level, segments;
+  //Positions on the unit sphere, so they double as the normals.
+  public final float[] vertices;
+  public final short[] indices;
+
+  private final int gridSize;
+  private int[] vertexLookup; //Grid point -> vertex, only needed while building.
+  private int vertexCount, indexCount;
+
+  //Level n has 2^n segments along each cube edge, 6 * 2 * 4^n faces in all.
+  public static synchronized QuadsphereGeometry forLevel(int level) {
+    if (level < 0 || level > MAX_LEVEL) {
+      throw new IllegalArgumentException("Quadsphere level out of range: " + level);
+    }
+    if (levels[level] == null) {
+      levels[level] = new QuadsphereGeometry(level);
+    }
+    return levels[level];
+  }
+
+  private QuadsphereGeometry(int level) {
+    this.level = level;
+    segments = 1 << level;
+    gridSize = segments + 1;
+
+    vertexLookup = new int[gridSize * gridSize * gridSize];
+    Arrays.fill(vertexLookup, -1);
+    float[] points = new float[(6 * segments * segments + 2) * 3]; //Exact for a subdivided cube.
+    short[] faces = new short[6 * segments * segments * 6];
+
+    //Each face is fixed on one axis at one side, u and v follow round the other two axes.
+    //u x v points along +axis, so the winding is flipped for the negative side to face outwards.
+    for (int axis = 0; axis < 3; axis++) {
+      for (int side = 0; side <= segments; side += segments) {
+        boolean flip = side == 0;
+        for (int u = 0; u < segments; u++) {
+          for (int v = 0; v < segments; v++) {
+            int a = vertexAt(points, axis, side, u, v);
+            int b = vertexAt(points, axis, side, u + 1, v);
+            int c = vertexAt(points, axis, side, u + 1, v + 1);
+            int d = vertexAt(points, axis, side, u, v + 1);
+            if (flip) {
+              addQuad(faces, a, d, c, b);
+            } else {
+              addQuad(faces, a, b, c, d);
+            }
+          }
+        }
+      }
+    }
+
+    vertexLookup = null;
+    GeometryKernels.spherify(points, vertexCount);
+    vertices = points;
+    indices = faces;
+  }
+
+  private void addQuad(short[] faces, int a, int b, int c, int d) {
+    faces[indexCount++] = (short) a;
+    faces[indexCount++] = (short) b;
+    faces[indexCount++] = (short) c;
+    faces[indexCount++] = (short) a;
+    faces[indexCount++] = (short) c;
+    faces[indexCount++] = (short) d;
+  }
+
+  //Every point sits on the integer grid, so grid position is a perfect de-duplication key.
+  private int vertexAt(float[] points, int axis, int side, int u, int v) {
+    int x = axis == 0 ? side : (axis == 1 ? v : u);
+    int y = axis == 0 ? u : (axis == 1 ? side : v);
+    int z = axis == 0 ? v : (axis == 1 ? u : side);
+    int key = (x * gridSize + y) * gridSize + z;
+
+    if (vertexLookup[key] < 0) {
+      points[vertexCount * 3] = -1 + 2f * x / segments;
+      points[vertexCount * 3 + 1] = -1 + 2f * y / segments;
+      points[vertexCount * 3 + 2] = -1 + 2f * z / segments;
+      vertexLookup[key] = vertexCount++;
+    }
+    return vertexLookup[key];
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public int getFaceCount() {
+    return indexCount / 3;
+  }
+}
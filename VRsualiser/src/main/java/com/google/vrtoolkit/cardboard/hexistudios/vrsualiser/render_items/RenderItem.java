@@ -1,12 +1,10 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
 
-import android.opengl.GLES20;
-import android.opengl.Matrix;
-
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GpuBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.Bounds;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.MatrixMath;
 
 
 public abstract class RenderItem {
@@ -15,9 +13,8 @@ public abstract class RenderItem {
 
   protected boolean visible = true;
 
-  //Position, normals, colour, index buffers.
-  protected FloatBuffer vertexBuf, colourBuf, normalBuf;
-  protected ByteBuffer indexBuf;
+  //Position, normals, colour, index buffers. Kept resident on the GPU, see GpuBuffer.
+  protected GpuBuffer vertexBuf, colourBuf, normalBuf, indexBuf;
 
   public boolean isVisible() {
     return visible;
@@ -28,7 +25,12 @@ public abstract class RenderItem {
   }
 
   //
-  protected float[] modelLocal, modelView, modelViewProjection;
+  protected float[] modelLocal;
+
+  //Box around the geometry in model space, and around where modelLocal puts it in world space.
+  //Both are refreshed lazily, the first time they're asked for after a change.
+  private final Bounds localBounds = new Bounds(), worldBounds = new Bounds();
+  private boolean localBoundsDirty = true, worldBoundsDirty = true;
 
   public RenderItem(float[] localPosition, RenderParams renderParams) {
 
@@ -37,8 +39,6 @@ public abstract class RenderItem {
 
     //Initialise
     modelLocal = new float[16];
-    modelView = new float[16];
-    modelViewProjection = new float[16];
 
     //Set object to inital position in local space.
     updateModelPosition(localPosition);
@@ -47,41 +47,98 @@ public abstract class RenderItem {
 
   //Updates the model position in local space.
   public void updateModelPosition(float modelPosition[]) {
-    Matrix.setIdentityM(modelLocal, 0);
-    Matrix.translateM(modelLocal, 0, modelPosition[0], modelPosition[1], modelPosition[2]);
+    MatrixMath.setIdentityM(modelLocal, 0);
+    MatrixMath.translateM(modelLocal, 0, modelPosition[0], modelPosition[1], modelPosition[2]);
+    worldBoundsDirty = true;
   }
 
-  //Render object with standard settings. Returns true if successfully rendered.
-  public boolean redraw(float[] lightPosInEyeSpace, float[] view, float[] perspective) {
-    if (!visible) { return true; } //Do not render if invisible.
+  //Geometry has changed, recompute the bounds from the vertex data next time they're needed.
+  protected void invalidateBounds() {
+    localBoundsDirty = true;
+    worldBoundsDirty = true;
+  }
 
-    Matrix.multiplyMM(modelView, 0, view, 0, modelLocal, 0);
-    Matrix.multiplyMM(modelViewProjection, 0, perspective, 0, modelView, 0);
+  //For items that can work out their own bounds cheaper than scanning every vertex.
+  protected void setLocalBounds(float minX, float minY, float minZ,
+                                float maxX, float maxY, float maxZ) {
+    localBounds.set(minX, minY, minZ, maxX, maxY, maxZ);
+    localBoundsDirty = false;
+    worldBoundsDirty = true;
+  }
 
-    // Set ModelView, MVP, //position, normals, and color.
-    GLES20.glUniform3fv(renderParams.lightPosParam, 1, lightPosInEyeSpace, 0);
+  public Bounds getLocalBounds() {
+    if (localBoundsDirty) {
+      if (vertexBuf != null) {
+        vertexBuf.getBounds(localBounds);
+      } else {
+        localBounds.setEmpty();
+      }
+      localBoundsDirty = false;
+    }
+    return localBounds;
+  }
 
-    //Converts Model Space (I.E (0, 0, 0) == object center) to world Space (Everything relative to some arbitrary 0, 0, 0)
-    GLES20.glUniformMatrix4fv(renderParams.modelLocalParam, 1, false, modelLocal, 0);
+  //World space box, used by Scene to cull against each eye's frustum.
+  public Bounds getWorldBounds() {
+    if (worldBoundsDirty || localBoundsDirty) {
+      worldBounds.setTransformed(getLocalBounds(), modelLocal, 0);
+      worldBoundsDirty = false;
+    }
+    return worldBounds;
+  }
 
-    //Converts World space to view Space, 'such a way that each coordinate is as seen from the camera or viewer's point of view.'
-    GLES20.glUniformMatrix4fv(renderParams.modelViewParam, 1, false, modelView, 0);
 
-    //Converts view space to clip space, i.e adding perspective. No, I have no idea either.
-    GLES20.glUniformMatrix4fv(renderParams.modelViewProjectionParam, 1, false, modelViewProjection, 0);
+  /**
+   * Issue this item's GL calls with its MVP already worked out. Called by Scene when replaying
+   * its command list, which skips invisible items.
+   *
+   * @param lightPosInWorldSpace Lighting is done in world space, so no model-view matrix is needed.
+   * @param modelViewProjection The eye's perspective x view x modelLocal.
+   */
+  public void draw(float[] lightPosInWorldSpace, float[] modelViewProjection) {
+    GL gl = renderParams.gl;
 
-    //Position, normals, and color.
-    GLES20.glVertexAttribPointer(renderParams.vertexParam, 3, GLES20.GL_FLOAT, false, 0, vertexBuf);
-    //GLES20.glVertexAttribPointer(cubeNormalParam, 3, GLES20.GL_FLOAT, false, 0, cubeNormals);
-    GLES20.glVertexAttribPointer(renderParams.colourParam, 4, GLES20.GL_FLOAT, false, 0, colourBuf);
+    // Set light position, model, MVP, //position, normals, and color.
+    gl.glUniform3fv(renderParams.lightPosParam, 1, lightPosInWorldSpace, 0);
+
+    //Converts Model Space (I.E (0, 0, 0) == object center) to world Space (Everything relative to some arbitrary 0, 0, 0)
+    gl.glUniformMatrix4fv(renderParams.modelLocalParam, 1, false, modelLocal, 0);
+
+    //Converts model space straight to clip space, i.e through the view and adding perspective.
+    gl.glUniformMatrix4fv(renderParams.modelViewProjectionParam, 1, false, modelViewProjection, 0);
+
+    //Position, normals, and color. Binding uploads any data changed since the last draw.
+    vertexBuf.bind(gl);
+    gl.glVertexAttribPointer(renderParams.vertexParam, 3, GL.GL_FLOAT, false, 0, 0);
+    colourBuf.bind(gl);
+    gl.glVertexAttribPointer(renderParams.colourParam, 4, GL.GL_FLOAT, false, 0, 0);
+
+    //Only some items have normals, the rest are lit with the attribute's constant value.
+    if (renderParams.normalParam >= 0) {
+      if (normalBuf != null) {
+        gl.glEnableVertexAttribArray(renderParams.normalParam);
+        normalBuf.bind(gl);
+        gl.glVertexAttribPointer(renderParams.normalParam, 3, GL.GL_FLOAT, false, 0, 0);
+      } else {
+        gl.glDisableVertexAttribArray(renderParams.normalParam);
+      }
+    }
 
     if (indexBuf != null) {
-      GLES20.glDrawElements(GLES20.GL_TRIANGLES, indexBuf.capacity(), GLES20.GL_UNSIGNED_BYTE, indexBuf);
+      indexBuf.bind(gl);
+      gl.glDrawElements(GL.GL_TRIANGLES, indexBuf.getCount(), indexBuf.getType(), 0);
     } else {
-      GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexBuf.capacity());
+      gl.glDrawArrays(GL.GL_TRIANGLES, 0, vertexBuf.getCount() / 3);
     }
+  }
+
+  public RenderParams getRenderParams() {
+    return renderParams;
+  }
 
-    return true; //report successful render.
+  //Items with equal keys share GL state (program, draw call type), so are drawn next to each other.
+  public int getStateKey() {
+    return renderParams.id * 2 + (indexBuf != null ? 0 : 1);
   }
 
   public float[] getModelLocal() {
@@ -90,5 +147,6 @@ public abstract class RenderItem {
 
   public void setModelLocal(float[] modelLocal) {
     this.modelLocal = modelLocal;
+    worldBoundsDirty = true;
   }
 }
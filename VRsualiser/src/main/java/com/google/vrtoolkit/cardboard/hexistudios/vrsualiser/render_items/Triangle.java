@@ -1,9 +1,8 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.DynamicFloatBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GpuBuffer;
 
 /**
  * Created by Tom on 25/03/2016.
@@ -11,33 +10,38 @@ import java.nio.ByteOrder;
 public class Triangle extends RenderItem {
 
   private float vertices[] = {};
+  private DynamicFloatBuffer vertexData, colourData;
 
   public float[] getVertices() {
     return vertices;
   }
 
+  //Copies into the existing buffers, the passed array is not kept.
   public void setVertices(float[] vertices) {
-    this.vertices = vertices;
-    ByteBuffer vertByteBuf = ByteBuffer.allocateDirect(vertices.length * 4);
-    vertByteBuf.order(ByteOrder.nativeOrder());
-    vertexBuf.clear();
-    vertexBuf = vertByteBuf.asFloatBuffer();
-    vertexBuf.put(vertices);
-    vertexBuf.position(0);
+    System.arraycopy(vertices, 0, this.vertices, 0, this.vertices.length);
+    vertexData.put(0, this.vertices, 0, this.vertices.length);
+    invalidateBounds();
   }
 
   public float[] getColors() {
     return colors;
   }
 
+  //Copies into the existing buffers, the passed array is not kept.
   public void setColors(float[] colors) {
-    this.colors = colors;
-    ByteBuffer colourByteBuf = ByteBuffer.allocateDirect(colors.length * 4);
-    colourByteBuf.order(ByteOrder.nativeOrder());
-    colourBuf.clear();
-    colourBuf = colourByteBuf.asFloatBuffer();
-    colourBuf.put(colors);
-    colourBuf.position(0);
+    System.arraycopy(colors, 0, this.colors, 0, this.colors.length);
+    colourData.put(0, this.colors, 0, this.colors.length);
+  }
+
+  //Set every vertex to one colour without needing a colour array.
+  public void setColor(float r, float g, float b, float a) {
+    for (int i = 0; i < colors.length; i += 4) {
+      colors[i] = r;
+      colors[i + 1] = g;
+      colors[i + 2] = b;
+      colors[i + 3] = a;
+    }
+    colourData.put(0, colors, 0, colors.length);
   }
 
   private float colors[] = {};
@@ -53,7 +57,6 @@ public class Triangle extends RenderItem {
                   RenderParams renderParams) {
     super(new float[]{0, 0, 0}, renderParams);
 
-    ByteBuffer vertByteBuf, colourByteBuf;
     vertices = new float[]{v1[0], v1[1], v1[2],
                            v2[0], v2[1], v2[2],
                            v3[0], v3[1], v3[2]};
@@ -65,27 +68,12 @@ public class Triangle extends RenderItem {
           0.01f, 0.29f, 0.58f, 1.0f
       };
 
-      indexBuf = ByteBuffer.allocateDirect(indices.length);
-      indexBuf.put(indices);
-      indexBuf.position(0);
-
-    vertByteBuf = ByteBuffer.allocateDirect(vertices.length * 4);
-    vertByteBuf.order(ByteOrder.nativeOrder());
-    vertexBuf = vertByteBuf.asFloatBuffer();
-    vertexBuf.put(vertices);
-    vertexBuf.position(0);
-
-    colourByteBuf = ByteBuffer.allocateDirect(colors.length * 4);
-    colourByteBuf.order(ByteOrder.nativeOrder());
-    colourBuf = colourByteBuf.asFloatBuffer();
-    colourBuf.put(colors);
-    colourBuf.position(0);
-  }
+      indexBuf = GpuBuffer.indices(indices);
 
-  @Override
-  public boolean redraw(float[] lightPosInEyeSpace, float[] view, float[] perspective) {
-    super.redraw(lightPosInEyeSpace, view, perspective);
-    return true;
+    vertexData = new DynamicFloatBuffer(vertices);
+    colourData = new DynamicFloatBuffer(colors); //Recoloured every audio frame.
+    vertexBuf = vertexData;
+    colourBuf = colourData;
   }
 
 
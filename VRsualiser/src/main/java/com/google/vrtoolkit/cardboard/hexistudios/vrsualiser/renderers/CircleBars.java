@@ -1,31 +1,53 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Cube;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.CaptureRequirements;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.Filterbank;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumInterpolator;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.BarMesh;
 
 /**
  * Digital EQ-like bars, rendered in a cricle around the user.
  */
 public class CircleBars extends Renderer {
+  private static final int BAR_COUNT = 256;
+  //Interpolated up to the display rate, so 30 captures a second is plenty. No waveform.
+  private static final CaptureRequirements REQUIREMENTS =
+      new CaptureRequirements(BAR_COUNT, false, 30);
 
-  Cube[] barCubes;
+  BarMesh bars;
+  private final RenderParams barParams;
+  private float[] bands, barHeights;
+  private Filterbank filterbank; //Log spaced bands, one per bar.
+  private SpectrumInterpolator interpolator; //Bands at display rate.
   private final float radius = 15;
-  private float maxBarNum, numOfBars, maxBarHeight, barDivisions = 4,
-      rotDivisions, circumference;
+  private final float heightScale = 45f; //Bar height at full volume.
+  private static final float SMOOTH_SECONDS = 0.04f;
+  private float numOfBars, rotDivisions, circumference;
 
   public CircleBars(RenderParams renderParams) {
+    this(renderParams, null);
+  }
+
+  //barParams raises the bars in the vertex shader, null (or too many bars) to do it on the CPU.
+  public CircleBars(RenderParams renderParams, RenderParams barParams) {
     super(renderParams);
+    this.barParams = barParams;
   }
 
-  //Params[0] = max number of columns, params[1] = max number of rows
   @Override
-  public void setup(Object[] params) {
-    //Setup number of columns
-    maxBarNum = (Integer)params[0];
-    maxBarHeight = (Integer)params[1];
+  public CaptureRequirements getCaptureRequirements() {
+    return REQUIREMENTS;
+  }
 
-    numOfBars = maxBarNum/barDivisions;
-    barCubes = new Cube[(int)numOfBars];  //Define number of bars.
+  @Override
+  public void setup() {
+    numOfBars = BAR_COUNT;
+    bands = new float[(int)numOfBars];
+    barHeights = new float[(int)numOfBars];
+    interpolator = new SpectrumInterpolator((int)numOfBars, SMOOTH_SECONDS);
+    float[] barPositions = new float[(int)numOfBars * 3];
     float scale = 0.6f;
     //float scale = radius * (float)Math.sin(rotDivisions);
     circumference =  2 * (float)Math.PI * radius;
@@ -36,10 +58,15 @@ public class CircleBars extends Renderer {
       float x = radius * (float)Math.cos(theta);
       float y = radius * (float)Math.sin(theta);
 
-      Cube tempRef = new Cube(scale, scale, scale, new float[]{x, -20f, y}, scene.renderParams);
-      barCubes[i] = tempRef;
-      scene.add(tempRef); //Add cube to renderList.
+      barPositions[i * 3] = x;
+      barPositions[i * 3 + 1] = -20f;
+      barPositions[i * 3 + 2] = y;
     }
+
+    //All bars live in one mesh, drawn with a single call.
+    bars = new BarMesh(barPositions, scale, scale, scale, new float[]{0, 0, 0},
+        BarMesh.paramsFor((int)numOfBars, barParams, scene.renderParams));
+    scene.add(bars); //Add bars to renderList.
   }
 
   @Override
@@ -48,17 +75,27 @@ public class CircleBars extends Renderer {
   }
 
   @Override
-  public void updateVisualiserFft(byte[] fftBytes) {
-    super.updateVisualiserFft(fftBytes);
+  public void updateSpectrum(SpectrumFrame spectrum) {
+    super.updateSpectrum(spectrum);
 
-    for (int i = 0; i < numOfBars; i++) {
-      byte rfk = fftBytes[(int)(barDivisions * i)];
-      byte ifk = fftBytes[(int)(barDivisions * i + 1)];
-      float magnitude = (rfk * rfk + ifk * ifk);
-      float dbValue = (float) ((10 * Math.log10(magnitude)));
+    if (spectrum.binCount < 2) { return; } //Nothing captured yet.
+    filterbank = Filterbank.forSpectrum(spectrum, (int)numOfBars, Filterbank.Scale.LOG,
+        filterbank);
+    filterbank.apply(spectrum, bands);
+    interpolator.push(bands, spectrum.timestampNanos);
+  }
+
+  @Override
+  public void onNewFrame(long frameNanos) {
+    super.onNewFrame(frameNanos);
 
-      barCubes[i].setHeight(dbValue);
+    //Nothing to upload once the bars have settled.
+    if (!interpolator.sample(frameNanos, barHeights)) { return; }
+    for (int i = 0; i < numOfBars; i++) {
+      barHeights[i] *= heightScale;
     }
+
+    bars.setHeights(barHeights, (int)numOfBars); //One write for every bar.
   }
 
   @Override
@@ -2,6 +2,8 @@ package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.Scene;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.CaptureRequirements;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
 
 /**
  * Created by Tom on 27/03/2016.
@@ -14,13 +16,33 @@ public abstract class Renderer {
     scene = new Scene(renderParams);
   }
 
-  public void setup(Object[] params) {}
+  //Called once, after construction, before the renderer is first drawn.
+  public void setup() {}
+
+  //What the audio analysis has to provide. Asked when the renderer is switched to; the less it
+  //asks for, the less the analysis costs.
+  public CaptureRequirements getCaptureRequirements() {
+    return CaptureRequirements.NONE;
+  }
 
   public void updateVisualiserWave(byte[] waveBytes) {
 
   }
 
-  public void updateVisualiserFft(byte[] fftBytes) {
+  //Called on the GL thread with the newest analysed FFT frame. Values are normalised, 0 to 1.
+  public void updateSpectrum(SpectrumFrame spectrum) {
+
+  }
+
+  //Called on the GL thread, just after updateSpectrum(), when a beat has fallen since the last
+  //frame. spectrum.beatConfidence says how much to trust it.
+  public void onBeat(SpectrumFrame spectrum) {
+
+  }
+
+  //Called on the GL thread once per frame, after any new audio has been handed over, with the
+  //System.nanoTime() the frame is for. For moving things smoothly between captures.
+  public void onNewFrame(long frameNanos) {
 
   }
 
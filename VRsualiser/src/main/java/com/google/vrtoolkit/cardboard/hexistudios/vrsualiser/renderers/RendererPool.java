@@ -0,0 +1,48 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.RenderItem;
+
+import java.util.HashMap;
+
+/**
+ * Renderers are built and set up the first time they're asked for, then kept along with their
+ * meshes, so switching back to one costs nothing. Every renderer shares the one floor.
+ * GPU buffers belong to a GL context, so make a new pool whenever the surface is recreated.
+ * Only use on the GL thread.
+ */
+public class RendererPool {
+
+  public interface Factory {
+    Renderer create(int id, RenderParams renderParams);
+  }
+
+  private final HashMap<Integer, Renderer> renderers = new HashMap<Integer, Renderer>();
+  private final Factory factory;
+  private final RenderParams renderParams;
+  private final RenderItem floor;
+
+  /**
+   * @param floor Added to each renderer's scene as a static item, may be null.
+   */
+  public RendererPool(Factory factory, RenderParams renderParams, RenderItem floor) {
+    this.factory = factory;
+    this.renderParams = renderParams;
+    this.floor = floor;
+  }
+
+  public Renderer get(int id) {
+    Renderer renderer = renderers.get(id);
+    if (renderer == null) {
+      renderer = factory.create(id, renderParams);
+      renderer.setup();
+      if (floor != null) { renderer.scene.addStatic(floor); }
+      renderers.put(id, renderer);
+    }
+    return renderer;
+  }
+
+  public boolean contains(int id) {
+    return renderers.containsKey(id);
+  }
+}
@@ -1,38 +1,66 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Cube;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.CaptureRequirements;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.Filterbank;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumInterpolator;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.BarMesh;
 
 /**
  * Digital EQ-like bars.
  */
 public class SimpleBars extends Renderer {
+  private static final int BAR_COUNT = 256;
+  //Interpolated up to the display rate, so 30 captures a second is plenty. No waveform.
+  private static final CaptureRequirements REQUIREMENTS =
+      new CaptureRequirements(BAR_COUNT, false, 30);
 
-  Cube[] barCubes;
-  private int maxBarNum, numOfBars, maxBarHeight, divisions = 4;
+  BarMesh bars;
+  private final RenderParams barParams;
+  private float[] bands, barHeights;
+  private Filterbank filterbank; //Log spaced bands, one per bar.
+  private SpectrumInterpolator interpolator; //Bands at display rate.
+  private int numOfBars;
+  private final float heightScale = 45f; //Bar height at full volume.
+  private static final float SMOOTH_SECONDS = 0.04f;
 
 
   public SimpleBars(RenderParams renderParams) {
+    this(renderParams, null);
+  }
+
+  //barParams raises the bars in the vertex shader, null (or too many bars) to do it on the CPU.
+  public SimpleBars(RenderParams renderParams, RenderParams barParams) {
     super(renderParams);
+    this.barParams = barParams;
 
   }
 
-  //Params[0] = max number of columns, params[1] = max number of rows
   @Override
-  public void setup(Object[] params) {
-    //Setup number of columns
-    maxBarNum = (Integer)params[0];
-    maxBarHeight = (Integer)params[1];
+  public CaptureRequirements getCaptureRequirements() {
+    return REQUIREMENTS;
+  }
 
-    numOfBars = maxBarNum/divisions;
-    barCubes = new Cube[numOfBars];  //Define number of bars.
+  @Override
+  public void setup() {
+    numOfBars = BAR_COUNT;
+    bands = new float[numOfBars];
+    barHeights = new float[numOfBars];
+    interpolator = new SpectrumInterpolator(numOfBars, SMOOTH_SECONDS);
     float scale = 0.8f;
 
+    //All bars live in one mesh, drawn with a single call.
+    float[] barPositions = new float[numOfBars * 3];
     for (int x = 0; x < numOfBars; x++) {
-      Cube tempRef = new Cube(scale, scale, scale, new float[]{(x - (numOfBars/2))*scale, 0, -20f}, scene.renderParams);
-      barCubes[x] = tempRef;
-      scene.add(tempRef); //Add cube to renderList.
+      barPositions[x * 3] = (x - (numOfBars/2))*scale;
+      barPositions[x * 3 + 1] = 0;
+      barPositions[x * 3 + 2] = -20f;
     }
+
+    bars = new BarMesh(barPositions, scale, scale, scale, new float[]{0, 0, 0},
+        BarMesh.paramsFor(numOfBars, barParams, scene.renderParams));
+    scene.add(bars); //Add bars to renderList.
   }
 
   @Override
@@ -41,19 +69,27 @@ public class SimpleBars extends Renderer {
   }
 
   @Override
-  public void updateVisualiserFft(byte[] fftBytes) {
-    super.updateVisualiserFft(fftBytes);
-
-    for (int i = 0; i < fftBytes.length/divisions; i++) {
-      byte rfk = fftBytes[divisions * i];
-      byte ifk = fftBytes[divisions * i + 1];
-      float magnitude = (rfk * rfk + ifk * ifk);
-      float dbValue = (float) (10 * Math.log10(magnitude));
-      if (dbValue < 0) {dbValue = 0;}
-      barCubes[i].setHeight(dbValue);
-    }
+  public void updateSpectrum(SpectrumFrame spectrum) {
+    super.updateSpectrum(spectrum);
 
+    if (spectrum.binCount < 2) { return; } //Nothing captured yet.
+    filterbank = Filterbank.forSpectrum(spectrum, numOfBars, Filterbank.Scale.LOG,
+        filterbank);
+    filterbank.apply(spectrum, bands);
+    interpolator.push(bands, spectrum.timestampNanos);
+  }
+
+  @Override
+  public void onNewFrame(long frameNanos) {
+    super.onNewFrame(frameNanos);
+
+    //Nothing to upload once the bars have settled.
+    if (!interpolator.sample(frameNanos, barHeights)) { return; }
+    for (int i = 0; i < numOfBars; i++) {
+      barHeights[i] *= heightScale;
+    }
 
+    bars.setHeights(barHeights, numOfBars); //One write for every bar.
   }
 
   @Override
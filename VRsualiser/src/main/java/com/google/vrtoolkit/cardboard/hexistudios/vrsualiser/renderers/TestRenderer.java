@@ -1,6 +1,7 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Triangle;
 
 import java.util.ArrayList;
@@ -31,31 +32,17 @@ public class TestRenderer extends Renderer {
   }
 
   @Override
-  public void updateVisualiserFft(byte[] fftBytes) {
-    super.updateVisualiserFft(fftBytes);
+  public void updateSpectrum(SpectrumFrame spectrum) {
+    super.updateSpectrum(spectrum);
 
     int divisions = faces.size();
     for (int i = 0; i < divisions; i++) {
-
       Triangle face = faces.get(i);
 
-      int index = (int)Math.floor(fftBytes.length/divisions);
-
-      byte rfk = fftBytes[index * i];
-      byte ifk = fftBytes[index * i + 1];
-      float magnitude = (rfk * rfk + ifk * ifk);
-      float dbValue = (float) (Math.log10(magnitude)/2);
-      System.out.println(dbValue);
-      if (dbValue < 0) {dbValue = 0.5f;} else if (dbValue > 1) { dbValue = 1;}
-
-      float colours[] = new float[] {
-          (float)0f, (float)dbValue, (float)dbValue, 1.0f,
-          (float)0f, (float)dbValue, (float)dbValue, 1.0f,
-          (float)0f, (float)dbValue, (float)dbValue, 1.0f,
-          (float)0f, (float)dbValue, (float)dbValue, 1.0f
-      };
+      float value = spectrum.get(spectrum.binFor(i, divisions));
+      if (value <= 0) {value = 0.5f;} //Silent bins stay half lit.
 
-      face.setColors(colours);
+      face.setColor(0f, value, value, 1.0f);
     }
   }
 
@@ -1,117 +1,168 @@
 package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers;
 
 import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
-import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Triangle;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.CaptureRequirements;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.MeshCache;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.MeshData;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Mesh;
 
-import java.util.ArrayList;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
 
 /**
  * A cube of flashing triangles.
+ * Built as one indexed mesh: vertices shared between faces are stored once, and each
+ * vertex is coloured from the average of the faces that use it. Given a MeshCache, the bigger
+ * cubes are built once and mapped back from disk on later runs.
  */
 public class TriangleCube extends Renderer {
-  ArrayList<Triangle> faces = new ArrayList<Triangle>();
+  //Bump whenever the generated geometry changes, so stale cached meshes are ignored.
+  private static final int GEOMETRY_VERSION = 1;
+  //Smaller cubes build faster than a cached copy can be mapped and checksummed.
+  private static final int MIN_CACHED_SIZE = 3;
+
+  private final int gridSize; //Grid points along each edge, 2 * size + 1.
+  private final int size;
+  private int[] vertexLookup; //Grid point -> mesh vertex, -1 until used. Only while generating.
+  private float[] vertices;
+  private short[] indices;
+  private int vertexCount, faceCount;
+
+  //Faces touching each vertex, vertexFaces[vertexFaceStart[v]] to vertexFaces[vertexFaceStart[v + 1]].
+  private int[] vertexFaceStart, vertexFaces;
+  private float[] faceValues, colours;
+  private final CaptureRequirements requirements;
+  Mesh mesh;
 
   public TriangleCube(RenderParams renderParams, int size) {
+    this(renderParams, null, size);
+  }
+
+  public TriangleCube(RenderParams renderParams, MeshCache meshCache, int size) {
     super(renderParams);
+    this.size = size;
+    gridSize = 2 * size + 1;
+
+    MeshCache.Generator generator = new MeshCache.Generator() {
+      @Override
+      public MeshData generate() {
+        return generateMesh();
+      }
+    };
+    MeshData geometry = meshCache != null && size >= MIN_CACHED_SIZE
+        ? meshCache.get("trianglecube-" + size + "-v" + GEOMETRY_VERSION, generator)
+        : generator.generate();
+
+    vertexCount = geometry.vertexCount;
+    faceCount = geometry.indexCount / 3;
+    buildVertexFaces(geometry.indices);
+
+    faceValues = new float[faceCount];
+    colours = new float[vertexCount * 4];
+    for (int v = 0; v < vertexCount; v++) {
+      colours[v * 4] = 0.01f;
+      colours[v * 4 + 1] = 0.29f;
+      colours[v * 4 + 2] = 0.58f;
+      colours[v * 4 + 3] = 1.0f;
+    }
+
+    mesh = new Mesh(geometry, colours, new float[]{0, 0, 0}, scene.renderParams);
+    scene.add(mesh); //Add for rendering.
+
+    //A bin per face, as many as the analysis will give, updated every frame. No waveform.
+    requirements = new CaptureRequirements(faceCount, false, 60);
+  }
+
+  @Override
+  public CaptureRequirements getCaptureRequirements() {
+    return requirements;
+  }
+
+  private MeshData generateMesh() {
+    int numOfFaces = 12 * (2 * size) * (2 * size);
+    vertexLookup = new int[gridSize * gridSize * gridSize];
+    Arrays.fill(vertexLookup, -1);
+    vertices = new float[6 * gridSize * gridSize * 3]; //Upper bound, trimmed once built.
+    indices = new short[numOfFaces * 3];
+    vertexCount = 0;
+    faceCount = 0;
 
     //Define triangles. Bit of a mess to read, but it works well.
     //Easy to understand if drawn out.
     for (int x = -size; x < size; x++) {
       for (int y = -size; y < size; y++) {
-        faces.add(new Triangle(   //Top1
-            new float[]{x, size, y},
-            new float[]{x + 1, size, y},
-            new float[]{x + 1, size, y + 1},
-            scene.renderParams));
-
-        faces.add(new Triangle( //Top2
-            new float[]{x, size, y},
-            new float[]{x, size, y + 1},
-            new float[]{x + 1, size, y + 1},
-            scene.renderParams));
-
-        faces.add(new Triangle( //Bottom1
-            new float[]{x + 1, -size, y + 1},
-            new float[]{x + 1, -size, y},
-            new float[]{x, -size, y},
-            scene.renderParams));
-
-        faces.add(new Triangle( //Bottom2
-            new float[]{x + 1, -size, y + 1},
-            new float[]{x, -size, y + 1},
-            new float[]{x, -size, y},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{-size, x, y},
-            new float[]{-size, x, y + 1},
-            new float[]{-size, x + 1, y},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{-size, x + 1, y},
-            new float[]{-size, x, y + 1},
-            new float[]{-size, x + 1, y + 1},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{size, x, y},
-            new float[]{size, x, y + 1},
-            new float[]{size, x + 1, y},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{size, x + 1, y + 1},
-            new float[]{size, x, y + 1},
-            new float[]{size, x + 1, y},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{x, y, -size},
-            new float[]{x + 1, y, -size},
-            new float[]{x, y + 1, -size},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{x + 1, y + 1, -size},
-            new float[]{x + 1, y, -size},
-            new float[]{x, y + 1, -size},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{x, y, size},
-            new float[]{x + 1, y, size},
-            new float[]{x, y + 1, size},
-            scene.renderParams));
-
-        faces.add(new Triangle(
-            new float[]{x + 1, y + 1, size},
-            new float[]{x + 1, y, size},
-            new float[]{x, y + 1, size},
-            scene.renderParams));
+        addFace(x, size, y,   x + 1, size, y,   x + 1, size, y + 1);  //Top1
+        addFace(x, size, y,   x, size, y + 1,   x + 1, size, y + 1);  //Top2
+
+        addFace(x + 1, -size, y + 1,   x + 1, -size, y,   x, -size, y);  //Bottom1
+        addFace(x + 1, -size, y + 1,   x, -size, y + 1,   x, -size, y);  //Bottom2
+
+        addFace(-size, x, y,   -size, x, y + 1,   -size, x + 1, y);
+        addFace(-size, x + 1, y,   -size, x, y + 1,   -size, x + 1, y + 1);
+
+        addFace(size, x, y,   size, x, y + 1,   size, x + 1, y);
+        addFace(size, x + 1, y + 1,   size, x, y + 1,   size, x + 1, y);
+
+        addFace(x, y, -size,   x + 1, y, -size,   x, y + 1, -size);
+        addFace(x + 1, y + 1, -size,   x + 1, y, -size,   x, y + 1, -size);
+
+        addFace(x, y, size,   x + 1, y, size,   x, y + 1, size);
+        addFace(x + 1, y + 1, size,   x + 1, y, size,   x, y + 1, size);
       }
     }
 
-    //add triangles to scene.
-    for (Triangle t : faces) {
-      scene.add(t); //Add for rendering.
+    MeshData geometry = Mesh.build(Arrays.copyOf(vertices, vertexCount * 3), indices);
+    vertexLookup = null;
+    vertices = null;
+    indices = null;
+    return geometry;
+  }
+
+  private void addFace(int ax, int ay, int az, int bx, int by, int bz, int cx, int cy, int cz) {
+    indices[faceCount * 3] = (short) vertexAt(ax, ay, az);
+    indices[faceCount * 3 + 1] = (short) vertexAt(bx, by, bz);
+    indices[faceCount * 3 + 2] = (short) vertexAt(cx, cy, cz);
+    faceCount++;
+  }
+
+  //Every vertex sits on the integer grid, so grid position is a perfect de-duplication key.
+  private int vertexAt(int x, int y, int z) {
+    int key = ((x + size) * gridSize + (y + size)) * gridSize + (z + size);
+
+    if (vertexLookup[key] < 0) {
+      vertices[vertexCount * 3] = x;
+      vertices[vertexCount * 3 + 1] = y;
+      vertices[vertexCount * 3 + 2] = z;
+      vertexLookup[key] = vertexCount++;
     }
+    return vertexLookup[key];
   }
 
-  //Convert each vert on a cube to a sphere - google 'quadsphere'
-  public float[] spherify(float[] oldVerts) {
-    float[] newVerts = new float[oldVerts.length];
+  //Reads the indices with absolute gets, so a mapped buffer is walked in place.
+  private void buildVertexFaces(ShortBuffer indices) {
+    vertexFaceStart = new int[vertexCount + 1];
+    vertexFaces = new int[faceCount * 3];
 
-    newVerts[0] = (float) (oldVerts[0] * Math.sqrt(1.0 - (oldVerts[1] * oldVerts[1] / 2.0) - (oldVerts[2] * oldVerts[2] / 2.0)
-        + (oldVerts[1] * oldVerts[1] * oldVerts[2] * oldVerts[2] / 3.0)));
+    for (int i = 0; i < faceCount * 3; i++) {
+      vertexFaceStart[(indices.get(i) & 0xFFFF) + 1]++;
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      vertexFaceStart[v + 1] += vertexFaceStart[v];
+    }
 
-    newVerts[1] = (float) (oldVerts[1] * Math.sqrt(1.0 - (oldVerts[2] * oldVerts[2] / 2.0) - (oldVerts[0] * oldVerts[0] / 2.0)
-        + (oldVerts[2] * oldVerts[2] * oldVerts[0] * oldVerts[0] / 3.0)));
+    int[] fill = Arrays.copyOf(vertexFaceStart, vertexCount);
+    for (int i = 0; i < faceCount * 3; i++) {
+      vertexFaces[fill[indices.get(i) & 0xFFFF]++] = i / 3;
+    }
+  }
 
-    newVerts[2] = (float) (oldVerts[2] * Math.sqrt(1.0 - (oldVerts[0] * oldVerts[0] / 2.0) - (oldVerts[1] * oldVerts[1] / 2.0)
-        + (oldVerts[0] * oldVerts[0] * oldVerts[1] * oldVerts[1] / 3.0)));
+  public int getFaceCount() {
+    return faceCount;
+  }
 
-    return newVerts;
+  public int getVertexCount() {
+    return vertexCount;
   }
 
   @Override
@@ -120,30 +171,29 @@ public class TriangleCube extends Renderer {
   }
 
   @Override
-  public void updateVisualiserFft(byte[] fftBytes) {
-    super.updateVisualiserFft(fftBytes);
-    int numOfFaces = faces.size();
-    int index = (int)Math.floor(fftBytes.length/numOfFaces);
-
-    for (int i = 0; i < numOfFaces; i++) {
-      Triangle face = faces.get(i); //Get current face
-
-      byte rfk = fftBytes[index * i];
-      byte ifk = fftBytes[index * i + 1];
-      float magnitude = (rfk * rfk + ifk * ifk);
-      float dbValue = (float)(Math.log10(magnitude)+1/3);  //Temp number massaging to get roughly between 1 and  0.
-      //Hard capping as temp number massaging is far from perfect.
-      if (dbValue < 0) {dbValue = 0.0f;} else if (dbValue > 1) { dbValue = 1;}
-
-      float colours[] = new float[] { //Construct new colour array.
-          0f, dbValue, dbValue, 1.0f,
-          0f, dbValue, dbValue, 1.0f,
-          0f, dbValue, dbValue, 1.0f,
-          0f, dbValue, dbValue, 1.0f
-      };
-
-      face.setColors(colours);  //Send new colour arya to triangle for processing to colBuffer.
+  public void updateSpectrum(SpectrumFrame spectrum) {
+    super.updateSpectrum(spectrum);
+
+    for (int i = 0; i < faceCount; i++) {
+      faceValues[i] = spectrum.get(spectrum.binFor(i, faceCount));
+    }
+
+    //Shared vertices take the average of their faces, then the whole stream goes up in one write.
+    for (int v = 0; v < vertexCount; v++) {
+      float sum = 0;
+      int start = vertexFaceStart[v], end = vertexFaceStart[v + 1];
+      for (int f = start; f < end; f++) {
+        sum += faceValues[vertexFaces[f]];
+      }
+      float value = sum / (end - start);
+
+      colours[v * 4] = 0f;
+      colours[v * 4 + 1] = value;
+      colours[v * 4 + 2] = value;
+      colours[v * 4 + 3] = 1.0f;
     }
+
+    mesh.setColors(colours);
   }
 
   @Override
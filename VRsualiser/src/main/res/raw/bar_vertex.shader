@@ -0,0 +1,31 @@
+uniform mat4 u_Model;
+uniform mat4 u_MVP;
+uniform vec3 u_LightPos;
+
+// Every bar's height, four to a vector. GLES 2 only promises 128 uniform vectors to a vertex
+// shader, and a float array can take a whole vector per float, so 256 plain floats might not fit.
+// Keep in step with BarMesh.MAX_SHADER_BARS.
+uniform vec4 u_Bands[64];
+
+attribute vec4 a_Position;
+attribute vec4 a_Color;
+attribute vec2 a_Bar; // Bar number, and 1 for a top vertex or 0 for a bottom one.
+
+varying vec4 v_Color;
+
+void main() {
+
+   // Tops are built level with the bottoms, and raised here by their bar's height.
+   vec4 bands = u_Bands[int(a_Bar.x * 0.25)];
+   float lane = a_Bar.x - 4.0 * floor(a_Bar.x * 0.25);
+   float height = dot(bands, vec4(equal(vec4(lane), vec4(0.0, 1.0, 2.0, 3.0))));
+   vec4 position = vec4(a_Position.x, a_Position.y + a_Bar.y * height, a_Position.zw);
+
+   // Lit as basic_vertex lights an item with no normals: half brightness, fading with distance.
+   vec3 worldVertex = vec3(u_Model * position);
+   float distance = length(u_LightPos - worldVertex);
+   float diffuse = 0.5 * (1.0 / (1.0 + (0.00001 * distance * distance)));
+
+   v_Color = a_Color * diffuse;
+   gl_Position = u_MVP * position;
+}
@@ -1,6 +1,5 @@
 uniform mat4 u_Model;
 uniform mat4 u_MVP;
-uniform mat4 u_MVMatrix;
 uniform vec3 u_LightPos;
 
 attribute vec4 a_Position;
@@ -13,12 +12,14 @@ varying vec3 v_Grid;
 void main() {
    v_Grid = vec3(u_Model * a_Position);
 
-   vec3 modelViewVertex = vec3(u_MVMatrix * a_Position);
-   vec3 modelViewNormal = vec3(u_MVMatrix * vec4(a_Normal, 0.0));
+   // Lit in world space, the view is only a rotation and offset so the result is the same as
+   // in eye space, and it saves a model-view matrix per item.
+   vec3 worldVertex = v_Grid;
+   vec3 worldNormal = vec3(u_Model * vec4(a_Normal, 0.0));
 
-   float distance = length(u_LightPos - modelViewVertex);
-   vec3 lightVector = normalize(u_LightPos - modelViewVertex);
-   float diffuse = max(dot(modelViewNormal, lightVector), 0.5);
+   float distance = length(u_LightPos - worldVertex);
+   vec3 lightVector = normalize(u_LightPos - worldVertex);
+   float diffuse = max(dot(worldNormal, lightVector), 0.5);
 
    diffuse = diffuse * (1.0 / (1.0 + (0.00001 * distance * distance)));
    v_Color = a_Color * diffuse;
@@ -0,0 +1,118 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.BeatDetector;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.PcmSpectrumEngine;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumAnalyser;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.TripleBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.Window;
+
+import java.util.Random;
+
+/**
+ * Offline check of BeatDetector against synthetic click tracks at a range of tempos, clean and
+ * over noise, plus noise alone. Audio goes through the same PcmSpectrumEngine setup as the
+ * Analyser. After a settling period it prints the tempo found, the confidence, beats counted
+ * against clicks played, how far beats land from the clicks, and onset recall and precision.
+ * Run with: ./gradlew :benchmarks:beats
+ */
+public final class BeatReport {
+  private static final int SAMPLE_RATE = 44100, FFT_SIZE = 2048, HOP = SAMPLE_RATE / 60;
+  private static final float SECONDS = 20, SETTLE_SECONDS = 8;
+  private static final float[] TEMPOS = {70, 90, 100, 120, 128, 140, 160, 174};
+  private static final float CLICK_SECONDS = 0.01f;
+  //An onset this close to a click counts as finding it.
+  private static final float ONSET_TOLERANCE_SECONDS = 0.05f;
+
+  private BeatReport() {}
+
+  public static void main(String[] args) {
+    System.out.println(String.format("%-12s %7s | %7s %5s | %5s %6s | %8s %8s | %6s %9s",
+        "track", "bpm", "found", "conf", "beats", "clicks", "offs ms", "jitter", "recall",
+        "precision"));
+    for (float noise : new float[]{0, 0.2f}) {
+      for (float bpm : TEMPOS) {
+        run(bpm, noise);
+      }
+    }
+    run(0, 0.2f); //No clicks at all: should find no steady beat.
+  }
+
+  private static void run(float bpm, float noise) {
+    short[] pcm = clickTrack(bpm, noise);
+    float clickPeriod = bpm > 0 ? 60 / bpm : 0;
+
+    SpectrumAnalyser analyser = new SpectrumAnalyser(FFT_SIZE / 2);
+    TripleBuffer<SpectrumFrame> frames = new TripleBuffer<SpectrumFrame>(
+        new SpectrumFrame(FFT_SIZE / 2), new SpectrumFrame(FFT_SIZE / 2),
+        new SpectrumFrame(FFT_SIZE / 2));
+    PcmSpectrumEngine engine = new PcmSpectrumEngine(FFT_SIZE, HOP, SAMPLE_RATE, Window.HANN,
+        analyser, frames);
+    BeatDetector detector = new BeatDetector(engine.getBinCount(), engine.binFrequency(1),
+        engine.getFrameRate());
+    engine.setBeatDetector(detector);
+
+    int beats = 0, onsets = 0, onsetHits = 0;
+    double offsetSum = 0, offsetSquares = 0;
+    int settledFrom = (int) (SETTLE_SECONDS * SAMPLE_RATE);
+    for (int pos = 0; pos + HOP <= pcm.length; pos += HOP) {
+      engine.write(pcm, pos, HOP);
+      SpectrumFrame frame = frames.poll();
+      if (frame == null || pos < settledFrom) { continue; }
+
+      //The frame's newest sample is where anything it noticed can have happened by.
+      float time = (float) (pos + HOP) / SAMPLE_RATE;
+      float offset = clickPeriod > 0 ? offsetToClick(time, clickPeriod) : 0;
+      if (frame.beat) {
+        beats++;
+        offsetSum += offset;
+        offsetSquares += offset * offset;
+      }
+      if (frame.onsetStrength > 0) {
+        onsets++;
+        if (clickPeriod > 0 && Math.abs(offset) <= ONSET_TOLERANCE_SECONDS) { onsetHits++; }
+      }
+    }
+
+    int clicks = clickPeriod > 0
+        ? (int) Math.ceil((SECONDS - SETTLE_SECONDS) / clickPeriod) : 0;
+    double meanOffset = beats > 0 ? offsetSum / beats : 0;
+    double jitter = beats > 0 ? Math.sqrt(Math.max(0, offsetSquares / beats - sq(meanOffset))) : 0;
+    String track = bpm > 0 ? (noise > 0 ? "clicks+noise" : "clicks") : "noise";
+    System.out.println(String.format("%-12s %7.1f | %7.1f %5.2f | %5d %6d | %8.1f %8.1f | %6.2f %9.2f",
+        track, bpm, detector.getTempoBpm(), detector.getConfidence(), beats, clicks,
+        meanOffset * 1000, jitter * 1000,
+        clicks > 0 ? (float) onsetHits / clicks : 0, onsets > 0 ? (float) onsetHits / onsets : 0));
+  }
+
+  private static double sq(double x) {
+    return x * x;
+  }
+
+  //Signed seconds from the nearest click to time, positive when after it.
+  private static float offsetToClick(float time, float period) {
+    float sinceClick = time % period;
+    return sinceClick > period / 2 ? sinceClick - period : sinceClick;
+  }
+
+  //A short decaying 1.5kHz blip with a noise attack on every beat, over optional white noise.
+  private static short[] clickTrack(float bpm, float noise) {
+    Random random = new Random(1);
+    short[] pcm = new short[(int) (SECONDS * SAMPLE_RATE)];
+    double period = bpm > 0 ? SAMPLE_RATE * 60.0 / bpm : 0;
+    int clickSamples = (int) (CLICK_SECONDS * SAMPLE_RATE);
+    for (int i = 0; i < pcm.length; i++) {
+      float value = noise * (random.nextFloat() * 2 - 1);
+      if (period > 0) {
+        int sinceClick = (int) (i - Math.floor(i / period) * period);
+        if (sinceClick < clickSamples) {
+          float envelope = (float) Math.exp(-5.0 * sinceClick / clickSamples);
+          float tone = (float) Math.sin(2 * Math.PI * 1500 * sinceClick / SAMPLE_RATE);
+          value += 0.8f * envelope * (0.7f * tone + 0.3f * (random.nextFloat() * 2 - 1));
+        }
+      }
+      pcm[i] = (short) (Math.max(-1f, Math.min(1f, value)) * 32767);
+    }
+    return pcm;
+  }
+}
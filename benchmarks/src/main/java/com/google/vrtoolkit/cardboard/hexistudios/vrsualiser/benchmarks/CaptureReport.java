@@ -0,0 +1,129 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumAnalyser;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.CaptureGL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.StateTrackingGL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Plane;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.CircleBars;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.Renderer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.SimpleBars;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.TriangleCube;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Drives each renderer through a run of frames, as MainActivity would, against a CaptureGL and
+ * prints what reaches GL: calls, draws, state changes and bytes uploaded per frame, with and
+ * without StateTrackingGL in front. The bar renderers are run again ("Shaded") with their bars
+ * raised by the bar program, so uniform bytes stand in for vertex uploads. The first frame (all
+ * the initial uploads) is shown apart from the steady state. Pass a directory to also get each
+ * run's full call log.
+ * Run with: ./gradlew :benchmarks:capture [-Pcapture="dir"]
+ */
+public final class CaptureReport {
+  private static final int FRAMES = 60;
+  private static final long FRAME_NANOS = 1000000000L / 60;
+  static final String[] RENDERERS = {
+      "SimpleBars", "SimpleBarsShaded", "CircleBars", "CircleBarsShaded", "TriangleCube2",
+      "TriangleCube4", "TriangleCube8"};
+
+  private CaptureReport() {}
+
+  public static void main(String[] args) throws IOException {
+    File logDir = args.length > 0 ? new File(args[0]) : null;
+    if (logDir != null && !logDir.isDirectory() && !logDir.mkdirs()) {
+      throw new IOException("Can't create " + logDir);
+    }
+
+    System.out.println(String.format("%-16s %-8s | %9s %10s | %7s %6s %7s %8s %10s %10s",
+        "renderer", "tracking", "1st calls", "1st bytes",
+        "calls", "draws", "state", "uniforms", "u. bytes", "bytes"));
+
+    for (String name : RENDERERS) {
+      for (boolean tracking : new boolean[]{false, true}) {
+        CaptureGL capture = new CaptureGL();
+        capture.setLogging(logDir != null);
+        run(name, capture, tracking);
+
+        if (logDir != null) {
+          File log = new File(logDir, name + (tracking ? "-tracked" : "") + ".tsv");
+          Writer out = new FileWriter(log);
+          try {
+            capture.writeLog(out);
+          } finally {
+            out.close();
+          }
+        }
+      }
+    }
+  }
+
+  static Renderer create(String name, RenderParams renderParams, GL gl) {
+    if (name.equals("SimpleBars")) { return new SimpleBars(renderParams); }
+    if (name.equals("SimpleBarsShaded")) {
+      return new SimpleBars(renderParams, Fixtures.barParams(gl));
+    }
+    if (name.equals("CircleBars")) { return new CircleBars(renderParams); }
+    if (name.equals("CircleBarsShaded")) {
+      return new CircleBars(renderParams, Fixtures.barParams(gl));
+    }
+    if (name.equals("TriangleCube2")) { return new TriangleCube(renderParams, 1); }
+    if (name.equals("TriangleCube4")) { return new TriangleCube(renderParams, 2); }
+    return new TriangleCube(renderParams, 3);
+  }
+
+  private static void run(String name, CaptureGL capture, boolean tracking) {
+    StateTrackingGL tracker = tracking ? new StateTrackingGL(capture) : null;
+    GL gl = tracking ? tracker : capture;
+    RenderParams renderParams = Fixtures.renderParams(gl);
+
+    Renderer renderer = create(name, renderParams, gl);
+    renderer.setup();
+    renderer.scene.addStatic(new Plane(200, 0, 200, new float[]{-100, -20f, -100}, true,
+        renderParams));
+    Fixtures.setEye(renderer.scene);
+
+    SpectrumAnalyser analyser = new SpectrumAnalyser(Fixtures.CAPTURE_SIZE / 2);
+    SpectrumFrame spectrum = new SpectrumFrame(Fixtures.CAPTURE_SIZE / 2);
+    capture.beginFrame(); //Setup goes in frame 0, on its own.
+
+    for (int frame = 0; frame < FRAMES; frame++) {
+      //onNewFrame.
+      if (tracker != null) { tracker.invalidate(); }
+      analyser.process(Fixtures.fftBytes(frame), spectrum);
+      renderer.updateSpectrum(spectrum);
+      renderer.onNewFrame(frame * FRAME_NANOS);
+      renderer.scene.compile();
+
+      //onDrawEye, twice. The scene switches programs itself.
+      for (int eye = 0; eye < 2; eye++) {
+        renderer.render();
+      }
+      capture.beginFrame();
+    }
+
+    //Frame 0 was setup, frame 1 the first drawn.
+    CaptureGL.FrameStats first = capture.getFrames().get(1);
+    long calls = 0, draws = 0, state = 0, uniforms = 0, uniformBytes = 0, bytes = 0;
+    for (int i = 2; i <= FRAMES; i++) {
+      CaptureGL.FrameStats stats = capture.getFrames().get(i);
+      calls += stats.calls;
+      draws += stats.drawCalls;
+      state += stats.stateChanges;
+      uniforms += stats.uniformCalls;
+      uniformBytes += stats.uniformBytes;
+      bytes += stats.uploadedBytes;
+    }
+    int steady = FRAMES - 1;
+
+    System.out.println(String.format("%-16s %-8s | %9d %10d | %7d %6d %7d %8d %10d %10d",
+        name, tracking ? "on" : "off", first.calls, first.uploadedBytes, calls / steady,
+        draws / steady, state / steady, uniforms / steady, uniformBytes / steady, bytes / steady));
+  }
+}
@@ -0,0 +1,142 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.PcmSpectrumEngine;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.RealFft;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumAnalyser;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.TripleBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.Window;
+
+import java.util.Random;
+
+/**
+ * Checks the FFT pipeline against synthetic input on a plain JVM:
+ * RealFft against a direct DFT of random input at every size up to 4096, then sines through
+ * PcmSpectrumEngine as the Analyser sets it up: a 1kHz tone, tones on bin centres, and a sweep
+ * across the visualised band. Each tone has to peak in the bin nearest its frequency at the
+ * level it was played at (less the window's scalloping loss between bins), for the Hann and
+ * Blackman windows and for hops both shorter and longer than the FFT.
+ * Exits with status 1 if anything is off.
+ * Run with: ./gradlew :benchmarks:fftCheck
+ */
+public final class FftCheck {
+  private static final int SAMPLE_RATE = 44100, FFT_SIZE = 2048;
+  //Hops either side of the FFT size: overlapping frames, and frames with samples skipped between.
+  private static final int[] HOPS = {SAMPLE_RATE / 60, FFT_SIZE * 3 / 2};
+  private static final Window[] WINDOWS = {Window.HANN, Window.BLACKMAN};
+  private static final float AMPLITUDE = 0.5f;
+  private static final float SWEEP_LOW_HZ = 60, SWEEP_HIGH_HZ = 16000;
+  private static final int SWEEP_TONES = 40;
+
+  //Largest DFT difference allowed, relative to the largest bin.
+  private static final double MAX_DFT_ERROR = 1e-5;
+  //Played level within this of the reading on a bin centre.
+  private static final float ON_BIN_DB = 0.1f;
+  //Worst case loss half way between bins, plus a little for the neighbouring tone image.
+  private static final float HANN_SCALLOP_DB = 1.5f, BLACKMAN_SCALLOP_DB = 1.2f;
+
+  private static int failures;
+
+  private FftCheck() {}
+
+  public static void main(String[] args) {
+    checkAgainstDft();
+    for (Window window : WINDOWS) {
+      for (int hop : HOPS) {
+        checkTone(1000, window, hop);
+        float binHz = (float) SAMPLE_RATE / FFT_SIZE;
+        for (int bin : new int[]{10, 43, 200, 700}) {
+          checkTone(bin * binHz, window, hop);
+        }
+        for (int i = 0; i < SWEEP_TONES; i++) {
+          double octaves = Math.log(SWEEP_HIGH_HZ / SWEEP_LOW_HZ) / Math.log(2);
+          checkTone(SWEEP_LOW_HZ * (float) Math.pow(2, octaves * i / (SWEEP_TONES - 1)), window,
+              hop);
+        }
+      }
+    }
+
+    if (failures > 0) {
+      System.out.println(failures + " checks FAILED");
+      System.exit(1);
+    }
+    System.out.println("OK");
+  }
+
+  private static void checkAgainstDft() {
+    Random random = new Random(7);
+    for (int size = 4; size <= 4096; size *= 2) {
+      RealFft fft = new RealFft(size);
+      float[] input = new float[size];
+      for (int i = 0; i < size; i++) {
+        input[i] = random.nextFloat() * 2 - 1;
+      }
+      float[] re = new float[fft.getBinCount()], im = new float[fft.getBinCount()];
+      fft.forward(input, 0, re, im);
+
+      double maxError = 0, maxMagnitude = 0;
+      for (int k = 0; k < fft.getBinCount(); k++) {
+        double dftRe = 0, dftIm = 0;
+        for (int n = 0; n < size; n++) {
+          double phase = -2 * Math.PI * ((long) k * n % size) / size;
+          dftRe += input[n] * Math.cos(phase);
+          dftIm += input[n] * Math.sin(phase);
+        }
+        maxError = Math.max(maxError, Math.hypot(re[k] - dftRe, im[k] - dftIm));
+        maxMagnitude = Math.max(maxMagnitude, Math.hypot(dftRe, dftIm));
+      }
+      double error = maxError / maxMagnitude;
+      System.out.println(String.format("RealFft %4d vs DFT: max error %.1e", size, error));
+      check(error <= MAX_DFT_ERROR, "RealFft " + size + " differs from the DFT by " + error);
+    }
+  }
+
+  private static void checkTone(float hz, Window window, int hop) {
+    SpectrumAnalyser analyser = new SpectrumAnalyser(FFT_SIZE / 2);
+    TripleBuffer<SpectrumFrame> frames = new TripleBuffer<SpectrumFrame>(
+        new SpectrumFrame(FFT_SIZE / 2), new SpectrumFrame(FFT_SIZE / 2),
+        new SpectrumFrame(FFT_SIZE / 2));
+    PcmSpectrumEngine engine = new PcmSpectrumEngine(FFT_SIZE, hop, SAMPLE_RATE, window,
+        analyser, frames);
+
+    //Enough for the window to be full of tone several times over.
+    short[] pcm = new short[FFT_SIZE * 4 + hop * 2];
+    for (int i = 0; i < pcm.length; i++) {
+      pcm[i] = (short) Math.round(32767 * AMPLITUDE * Math.sin(2 * Math.PI * hz * i / SAMPLE_RATE));
+    }
+    for (int pos = 0; pos < pcm.length; pos += hop) {
+      engine.write(pcm, pos, Math.min(hop, pcm.length - pos), 0);
+    }
+    SpectrumFrame frame = frames.poll();
+    if (!check(frame != null, window + " hop " + hop + ": no frame for " + hz + "Hz")) { return; }
+
+    int peak = 1;
+    for (int k = 2; k < frame.binCount; k++) {
+      if (frame.db[k] > frame.db[peak]) { peak = k; }
+    }
+    float exactBin = hz / engine.binFrequency(1);
+    int expectedBin = Math.round(exactBin);
+
+    //A tone between bins reads lower, by up to the window's scalloping loss half way.
+    float playedDb = (float) (20 * Math.log10(AMPLITUDE));
+    float scallop = window == Window.HANN ? HANN_SCALLOP_DB : BLACKMAN_SCALLOP_DB;
+    float offBin = Math.abs(exactBin - expectedBin) * 2; //0 on a centre, 1 half way.
+    float lowest = playedDb - ON_BIN_DB - scallop * offBin;
+    float highest = playedDb + ON_BIN_DB;
+
+    String tone = String.format("%s hop %d: %.1fHz", window, hop, hz);
+    check(peak == expectedBin, tone + " peaked in bin " + peak + ", expected " + expectedBin);
+    check(frame.db[peak] >= lowest && frame.db[peak] <= highest,
+        String.format("%s read %.2fdB, expected %.2f to %.2f", tone, frame.db[peak], lowest,
+            highest));
+  }
+
+  //Prints the failure and counts it, returns ok.
+  private static boolean check(boolean ok, String failure) {
+    if (!ok) {
+      System.out.println("FAIL: " + failure);
+      failures++;
+    }
+    return ok;
+  }
+}
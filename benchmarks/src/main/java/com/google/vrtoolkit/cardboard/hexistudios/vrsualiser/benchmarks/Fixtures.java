@@ -0,0 +1,59 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.Scene;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.MatrixMath;
+
+import java.util.Random;
+
+/**
+ * Shared inputs, fixed seed so runs are comparable.
+ */
+final class Fixtures {
+  //Visualizer.getCaptureSizeRange()[1] on our devices.
+  static final int CAPTURE_SIZE = 1024;
+
+  private Fixtures() {}
+
+  static RenderParams renderParams() {
+    return renderParams(new NullGL());
+  }
+
+  static RenderParams renderParams(GL gl) {
+    return new RenderParams(1, 0, 1, 2, 0, 1, 2, gl);
+  }
+
+  //As ShaderRegistry would find bar_vertex's: no normals, plus a_Bar and u_Bands.
+  static RenderParams barParams() {
+    return barParams(new NullGL());
+  }
+
+  static RenderParams barParams(GL gl) {
+    return new RenderParams(2, 0, 1, 2, 0, -1, 1, 2, 3, gl);
+  }
+
+  //Roughly what onDrawEye sets up: looking down -z from just off the origin.
+  static void setEye(Scene scene) {
+    MatrixMath.setIdentityM(scene.view, 0);
+    MatrixMath.translateM(scene.view, 0, 0.03f, 0, -0.01f);
+    MatrixMath.setIdentityM(scene.perspective, 0);
+    scene.perspective[0] = 1.2f;
+    scene.perspective[5] = 1.2f;
+    scene.perspective[10] = -1.0f;
+    scene.perspective[11] = -1.0f;
+    scene.perspective[14] = -0.2f;
+    scene.perspective[15] = 0;
+  }
+
+  //Plausible Visualizer output: loud bass falling off towards the top.
+  static byte[] fftBytes(int seed) {
+    Random random = new Random(seed);
+    byte[] bytes = new byte[CAPTURE_SIZE];
+    for (int i = 0; i < bytes.length; i++) {
+      int range = 1 + 127 * (bytes.length - i) / bytes.length;
+      bytes[i] = (byte) (random.nextInt(2 * range) - range);
+    }
+    return bytes;
+  }
+}
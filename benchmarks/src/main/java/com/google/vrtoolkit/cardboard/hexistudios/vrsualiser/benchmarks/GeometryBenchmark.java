@@ -0,0 +1,119 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Cube;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.MeshCache;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.math.GeometryKernels;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.QuadsphereGeometry;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.TriangleCube;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesh construction and per-vertex geometry work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryBenchmark {
+  //Matches the menu options, 2x2, 4x4 and 8x8.
+  @Param({"1", "2", "3"})
+  public int size;
+
+  private RenderParams renderParams;
+  private TriangleCube triangleCube;
+  private float[] cubePoints, spherePoints;
+  private int pointCount;
+  private MeshCache meshCache;
+  private QuadsphereGeometry sphere;
+  private float[] sphereNormals;
+  private Cube cube;
+  private float height;
+
+  @Setup
+  public void setup() throws IOException {
+    renderParams = Fixtures.renderParams();
+    triangleCube = new TriangleCube(renderParams, size);
+
+    //Saved once here, so the benchmark only ever maps it back.
+    File meshDir = File.createTempFile("meshes", "");
+    meshDir.delete();
+    meshDir.mkdirs();
+    meshDir.deleteOnExit();
+    meshCache = new MeshCache(meshDir);
+    new TriangleCube(renderParams, meshCache, size);
+
+    //Every grid point on the surface of a unit cube, as spherify is fed them.
+    int steps = 2 * size;
+    pointCount = 6 * (steps + 1) * (steps + 1);
+    cubePoints = new float[pointCount * 3];
+    spherePoints = new float[pointCount * 3];
+    int p = 0;
+    for (int axis = 0; axis < 3; axis++) {
+      for (int sign = -1; sign <= 1; sign += 2) {
+        for (int u = 0; u <= steps; u++) {
+          for (int v = 0; v <= steps; v++) {
+            cubePoints[p * 3 + axis] = sign;
+            cubePoints[p * 3 + (axis + 1) % 3] = -1 + 2f * u / steps;
+            cubePoints[p * 3 + (axis + 2) % 3] = -1 + 2f * v / steps;
+            p++;
+          }
+        }
+      }
+    }
+
+    //Top level, big enough that the kernels split across cores.
+    sphere = QuadsphereGeometry.forLevel(QuadsphereGeometry.MAX_LEVEL);
+    sphereNormals = new float[sphere.getVertexCount() * 3];
+
+    cube = new Cube(0.8f, 0.8f, 0.8f, new float[]{0, 0, -20f}, renderParams);
+  }
+
+  @Benchmark
+  public TriangleCube triangleCubeConstruction() {
+    return new TriangleCube(renderParams, size);
+  }
+
+  @Benchmark
+  public TriangleCube triangleCubeFromCache() {
+    return new TriangleCube(renderParams, meshCache, size);
+  }
+
+  @Benchmark
+  public float[] spherify() {
+    System.arraycopy(cubePoints, 0, spherePoints, 0, cubePoints.length);
+    GeometryKernels.spherify(spherePoints, pointCount);
+    return spherePoints;
+  }
+
+  @Benchmark
+  public float[] sphereNormals() {
+    GeometryKernels.vertexNormals(sphere.vertices, sphere.getVertexCount(), sphere.indices,
+        sphere.indices.length, sphereNormals);
+    return sphereNormals;
+  }
+
+  @Benchmark
+  public Cube cubeSetHeight() {
+    height = height > 40 ? 0 : height + 1; //Always a new height, never the no-change early out.
+    cube.setHeight(height);
+    return cube;
+  }
+}
@@ -0,0 +1,60 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+
+import java.nio.Buffer;
+
+/**
+ * Accepts every call and does nothing, so only our own CPU work is measured.
+ */
+public class NullGL implements GL {
+  private int nextBuffer = 1;
+
+  @Override
+  public void glUseProgram(int program) {}
+
+  @Override
+  public void glEnableVertexAttribArray(int index) {}
+
+  @Override
+  public void glDisableVertexAttribArray(int index) {}
+
+  @Override
+  public void glGenBuffers(int n, int[] buffers, int offset) {
+    for (int i = 0; i < n; i++) {
+      buffers[offset + i] = nextBuffer++;
+    }
+  }
+
+  @Override
+  public void glDeleteBuffers(int n, int[] buffers, int offset) {}
+
+  @Override
+  public void glBindBuffer(int target, int buffer) {}
+
+  @Override
+  public void glBufferData(int target, int size, Buffer data, int usage) {}
+
+  @Override
+  public void glBufferSubData(int target, int offset, int size, Buffer data) {}
+
+  @Override
+  public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+                                    int offset) {}
+
+  @Override
+  public void glDrawElements(int mode, int count, int type, int offset) {}
+
+  @Override
+  public void glDrawArrays(int mode, int first, int count) {}
+
+  @Override
+  public void glUniform3fv(int location, int count, float[] v, int offset) {}
+
+  @Override
+  public void glUniform4fv(int location, int count, float[] v, int offset) {}
+
+  @Override
+  public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value,
+                                 int offset) {}
+}
@@ -0,0 +1,183 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.PcmRingBuffer;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.PcmRingBuffer.OverflowPolicy;
+
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+/**
+ * Checks PcmRingBuffer on a plain JVM. First each overflow policy on one thread: what is kept,
+ * what is counted as dropped and where a ShortBuffer is left. Then a writer thread races a
+ * reader that falls behind, so DROP_OLDEST has to move the reader on under it. Samples are
+ * numbered in the order they're stored, so every read must come out as one unbroken run (a copy
+ * the writer overwrote part way through shows up as a jump), and once drained written must equal
+ * read + dropped.
+ * Exits with status 1 if anything is off.
+ * Run with: ./gradlew :benchmarks:ringBufferCheck [-Psamples=n]
+ */
+public final class PcmRingBufferCheck {
+  private static final int DEFAULT_SAMPLES = 20000000;
+  private static final int CAPACITY = 1024, MAX_CHUNK = 700;
+
+  private static int failures;
+
+  private PcmRingBufferCheck() {}
+
+  public static void main(String[] args) throws InterruptedException {
+    long samples = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_SAMPLES;
+
+    checkSizing();
+    checkDropNewest();
+    checkDropOldest();
+    checkShortBuffer(OverflowPolicy.DROP_NEWEST);
+    checkShortBuffer(OverflowPolicy.DROP_OLDEST);
+    for (OverflowPolicy policy : OverflowPolicy.values()) {
+      checkConcurrent(policy, samples);
+    }
+
+    if (failures > 0) {
+      System.out.println(failures + " checks FAILED");
+      System.exit(1);
+    }
+    System.out.println("OK");
+  }
+
+  private static void checkSizing() {
+    check(PcmRingBuffer.capacityFor(1000) == 1024, "capacityFor(1000) != 1024");
+    check(PcmRingBuffer.capacityFor(1024) == 1024, "capacityFor(1024) != 1024");
+    boolean threw = false;
+    try {
+      new PcmRingBuffer(1000, OverflowPolicy.DROP_OLDEST);
+    } catch (IllegalArgumentException e) {
+      threw = true;
+    }
+    check(threw, "a capacity of 1000 was accepted");
+  }
+
+  //The ring fills, then the rest of the write is lost and the oldest samples are kept.
+  private static void checkDropNewest() {
+    PcmRingBuffer ring = new PcmRingBuffer(16, OverflowPolicy.DROP_NEWEST);
+    check(ring.write(counting(0, 10), 0, 10) == 10, "DROP_NEWEST: 10 didn't fit in 16");
+    check(ring.write(counting(10, 10), 0, 10) == 6, "DROP_NEWEST: didn't store the 6 that fit");
+    check(ring.getDropped() == 4, "DROP_NEWEST: dropped " + ring.getDropped() + ", not 4");
+    check(ring.write(counting(20, 5), 0, 5) == 0, "DROP_NEWEST: wrote into a full ring");
+    expectRun(ring, 0, 16, "DROP_NEWEST");
+    check(ring.getDropped() == 9, "DROP_NEWEST: dropped " + ring.getDropped() + ", not 9");
+  }
+
+  //The reader is moved on, so the newest samples always get in.
+  private static void checkDropOldest() {
+    PcmRingBuffer ring = new PcmRingBuffer(16, OverflowPolicy.DROP_OLDEST);
+    ring.write(counting(0, 10), 0, 10);
+    check(ring.write(counting(10, 10), 0, 10) == 10, "DROP_OLDEST: didn't store all 10");
+    check(ring.getDropped() == 4, "DROP_OLDEST: dropped " + ring.getDropped() + ", not 4");
+    expectRun(ring, 4, 16, "DROP_OLDEST");
+
+    //More than the ring holds in one go: only the newest ring's worth survives.
+    check(ring.write(counting(100, 40), 0, 40) == 16, "DROP_OLDEST: oversized write not trimmed");
+    check(ring.getDropped() == 4 + 24, "DROP_OLDEST: dropped " + ring.getDropped() + ", not 28");
+    expectRun(ring, 124, 16, "DROP_OLDEST oversized");
+  }
+
+  //Either way the buffer ends up just past what was offered.
+  private static void checkShortBuffer(OverflowPolicy policy) {
+    PcmRingBuffer ring = new PcmRingBuffer(16, policy);
+    ShortBuffer src = ShortBuffer.wrap(counting(0, 30));
+    src.position(2);
+    ring.write(src, 20);
+    check(src.position() == 22, policy + " ShortBuffer: left at " + src.position() + ", not 22");
+    expectRun(ring, policy == OverflowPolicy.DROP_NEWEST ? 2 : 6, 16, policy + " ShortBuffer");
+  }
+
+  private static void checkConcurrent(OverflowPolicy policy, final long samples)
+      throws InterruptedException {
+    final PcmRingBuffer ring = new PcmRingBuffer(CAPACITY, policy);
+    final long[] written = new long[1];
+
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Random random = new Random(1);
+        short[] chunk = new short[MAX_CHUNK];
+        long offered = 0, stored = 0;
+        while (offered < samples) {
+          int count = (int) Math.min(samples - offered, 1 + random.nextInt(MAX_CHUNK));
+          //DROP_NEWEST stores the first n offered, DROP_OLDEST (chunks being under a ring's
+          //worth) all of them, so either way the stored stream counts up without a gap.
+          for (int i = 0; i < count; i++) {
+            chunk[i] = (short) (stored + i);
+          }
+          stored += ring.write(chunk, 0, count);
+          offered += count;
+          if (random.nextInt(8) == 0) { Thread.yield(); }
+        }
+        written[0] = offered;
+      }
+    }, "writer");
+
+    long start = System.nanoTime();
+    writer.start();
+
+    //Reads smaller than the writes, and stalls, so the ring keeps overflowing.
+    Random random = new Random(2);
+    short[] chunk = new short[MAX_CHUNK / 2];
+    long read = 0, breaks = 0;
+    while (true) {
+      boolean finished = !writer.isAlive(); //Before the read, so nothing can come in after it.
+      int n = ring.read(chunk, 0, 1 + random.nextInt(chunk.length));
+      if (n == 0) {
+        if (finished) { break; }
+        continue;
+      }
+      read += n;
+      for (int i = 1; i < n; i++) {
+        if ((short) (chunk[i - 1] + 1) != chunk[i]) {
+          breaks++;
+          break;
+        }
+      }
+      if (random.nextInt(4) == 0) { Thread.yield(); }
+    }
+    writer.join();
+    long elapsed = System.nanoTime() - start;
+
+    long dropped = ring.getDropped();
+    System.out.println(String.format("%s: %d samples in %d ms, %d read, %d dropped",
+        policy, written[0], elapsed / 1000000, read, dropped));
+    check(written[0] == samples, policy + ": wrote " + written[0] + ", not " + samples);
+    check(written[0] == read + dropped, policy + ": written " + written[0] + " != read " + read
+        + " + dropped " + dropped);
+    check(breaks == 0, policy + ": " + breaks + " reads weren't one unbroken run");
+  }
+
+  private static short[] counting(int from, int count) {
+    short[] values = new short[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = (short) (from + i);
+    }
+    return values;
+  }
+
+  //Reads everything left and checks it is exactly from, from + 1, ... count values.
+  private static void expectRun(PcmRingBuffer ring, int from, int count, String what) {
+    short[] out = new short[count + 1];
+    int n = ring.read(out, 0, out.length);
+    if (!check(n == count, what + ": read " + n + " samples, not " + count)) { return; }
+    for (int i = 0; i < n; i++) {
+      if (!check(out[i] == (short) (from + i), what + ": sample " + i + " was " + out[i]
+          + ", not " + (from + i))) {
+        return;
+      }
+    }
+  }
+
+  //Prints the failure and counts it, returns ok.
+  private static boolean check(boolean ok, String failure) {
+    if (!ok) {
+      System.out.println("FAIL: " + failure);
+      failures++;
+    }
+    return ok;
+  }
+}
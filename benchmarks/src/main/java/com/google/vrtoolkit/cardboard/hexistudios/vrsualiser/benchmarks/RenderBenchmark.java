@@ -0,0 +1,83 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.Scene;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.StateTrackingGL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Cube;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Plane;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scene.compile() and redraw() against a GL that does nothing, i.e the per-item matrix and
+ * bookkeeping cost of drawing, with no culling, per item culling or the static BVH, and with
+ * or without StateTrackingGL in front.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+  //One Cube per bar, the old SimpleBars layout.
+  @Param({"256"})
+  public int items;
+
+  @Param({"none", "flat", "bvh"})
+  public String culling;
+
+  @Param({"false", "true"})
+  public boolean stateTracking;
+
+  private Scene scene;
+
+  @Setup
+  public void setup() {
+    RenderParams renderParams = stateTracking
+        ? Fixtures.renderParams(new StateTrackingGL(new NullGL())) : Fixtures.renderParams();
+    scene = new Scene(renderParams);
+    scene.setCulling(!culling.equals("none"));
+
+    for (int i = 0; i < items; i++) {
+      Cube cube = new Cube(0.8f, 0.8f, 0.8f, new float[]{(i - items / 2) * 0.8f, 0, -20f},
+          renderParams);
+      if (culling.equals("bvh")) {
+        scene.addStatic(cube);
+      } else {
+        scene.add(cube);
+      }
+    }
+    scene.addStatic(new Plane(200, 0, 200, new float[]{-100, -20f, -100}, true, renderParams));
+
+    Fixtures.setEye(scene);
+  }
+
+  //One eye replaying the already compiled command list.
+  @Benchmark
+  public Scene redraw() {
+    scene.redraw();
+    return scene;
+  }
+
+  //A whole frame: compile the command list in onNewFrame, then replay it for both eyes.
+  @Benchmark
+  public Scene frame() {
+    scene.compile();
+    scene.redraw();
+    scene.redraw();
+    return scene;
+  }
+}
@@ -0,0 +1,139 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.BeatDetector;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.RealFft;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumAnalyser;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.CircleBars;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.SimpleBars;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.TriangleCube;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FFT bytes to bar heights / face colours: the per-capture work of each renderer.
+ * Two captures are alternated so nothing settles into a no-change fast path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpectrumBenchmark {
+  private static final long FRAME_NANOS = 1000000000L / 60;
+
+  private byte[][] captures;
+  private int next;
+  private long frameNanos;
+  private SpectrumAnalyser analyser;
+  private SpectrumFrame frame;
+  private SimpleBars simpleBars, simpleBarsShaded;
+  private CircleBars circleBars;
+  private TriangleCube triangleCube;
+
+  private BeatDetector beatDetector;
+  private float[][] powers; //Each capture's bins as power, as PcmSpectrumEngine hands them on.
+  private RealFft fft;
+  private float[] pcm, fftRe, fftIm, power;
+
+  @Setup
+  public void setup() {
+    captures = new byte[][]{Fixtures.fftBytes(1), Fixtures.fftBytes(2)};
+    analyser = new SpectrumAnalyser(Fixtures.CAPTURE_SIZE / 2);
+    frame = new SpectrumFrame(Fixtures.CAPTURE_SIZE / 2);
+
+    simpleBars = new SimpleBars(Fixtures.renderParams());
+    simpleBars.setup();
+    simpleBarsShaded = new SimpleBars(Fixtures.renderParams(), Fixtures.barParams());
+    simpleBarsShaded.setup();
+    circleBars = new CircleBars(Fixtures.renderParams());
+    circleBars.setup();
+    triangleCube = new TriangleCube(Fixtures.renderParams(), 3);
+
+    beatDetector = new BeatDetector(Fixtures.CAPTURE_SIZE / 2, 44100f / Fixtures.CAPTURE_SIZE, 60);
+    powers = new float[captures.length][Fixtures.CAPTURE_SIZE / 2];
+    for (int c = 0; c < captures.length; c++) {
+      analyser.process(captures[c], frame);
+      for (int k = 0; k < frame.binCount; k++) {
+        powers[c][k] = (float) Math.pow(10, frame.db[k] / 10);
+      }
+    }
+
+    fft = new RealFft(2048);
+    pcm = new float[2048];
+    for (int i = 0; i < pcm.length; i++) {
+      pcm[i] = (float) Math.sin(2 * Math.PI * 1000 * i / 44100.0);
+    }
+    fftRe = new float[fft.getBinCount()];
+    fftIm = new float[fft.getBinCount()];
+    power = new float[fft.getBinCount()];
+  }
+
+  private byte[] nextCapture() {
+    next ^= 1;
+    return captures[next];
+  }
+
+  @Benchmark
+  public SpectrumFrame analyse() {
+    analyser.process(nextCapture(), frame);
+    return frame;
+  }
+
+  @Benchmark
+  public SimpleBars simpleBars() {
+    analyser.process(nextCapture(), frame);
+    simpleBars.updateSpectrum(frame);
+    simpleBars.onNewFrame(frameNanos += FRAME_NANOS);
+    return simpleBars;
+  }
+
+  //Heights raised in the vertex shader, so no vertices are rewritten.
+  @Benchmark
+  public SimpleBars simpleBarsShaded() {
+    analyser.process(nextCapture(), frame);
+    simpleBarsShaded.updateSpectrum(frame);
+    simpleBarsShaded.onNewFrame(frameNanos += FRAME_NANOS);
+    return simpleBarsShaded;
+  }
+
+  @Benchmark
+  public CircleBars circleBars() {
+    analyser.process(nextCapture(), frame);
+    circleBars.updateSpectrum(frame);
+    circleBars.onNewFrame(frameNanos += FRAME_NANOS);
+    return circleBars;
+  }
+
+  @Benchmark
+  public TriangleCube triangleCube() {
+    analyser.process(nextCapture(), frame);
+    triangleCube.updateSpectrum(frame);
+    return triangleCube;
+  }
+
+  @Benchmark
+  public SpectrumFrame beatDetector() {
+    analyser.process(nextCapture(), frame);
+    beatDetector.process(frame, powers[next], frame.binCount);
+    return frame;
+  }
+
+  @Benchmark
+  public float[] realFft2048() {
+    fft.powerSpectrum(pcm, 0, fftRe, fftIm, power);
+    return power;
+  }
+}
@@ -0,0 +1,237 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.RenderParams;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumAnalyser;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.SpectrumFrame;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.GL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.gl.StateTrackingGL;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.render_items.Plane;
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.renderers.Renderer;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks that StateTrackingGL only drops calls that change nothing. Each renderer is driven
+ * through the same frames twice, straight into a GL model and through a StateTrackingGL in front
+ * of it. The model keeps the state GL would have (program, enabled attributes and their
+ * pointers, bound buffers, each program's uniforms) and writes it down at every draw, and the
+ * two runs must have drawn with exactly the same state. Between frames the model is scribbled on
+ * behind the tracker's back, as the Cardboard distortion pass does, so invalidate() is checked
+ * too. A last run switches between every renderer on one GL, as the renderer pool does.
+ * Exits with status 1 if anything is off.
+ * Run with: ./gradlew :benchmarks:stateTrackingCheck
+ */
+public final class StateTrackingCheck {
+  private static final int FRAMES = 10, SWITCH_EVERY = 3;
+  private static final long FRAME_NANOS = 1000000000L / 60;
+  //Stands in for the distortion pass's program and buffers.
+  private static final int DISTORTION_PROGRAM = 99, DISTORTION_BUFFER = 1000;
+
+  private static int failures;
+
+  private StateTrackingCheck() {}
+
+  public static void main(String[] args) {
+    for (String name : CaptureReport.RENDERERS) {
+      compare(name, new String[]{name});
+    }
+    compare("all, switching", CaptureReport.RENDERERS);
+
+    if (failures > 0) {
+      System.out.println(failures + " runs FAILED");
+      System.exit(1);
+    }
+    System.out.println("OK");
+  }
+
+  private static void compare(String what, String[] names) {
+    GlModel direct = new GlModel();
+    run(names, direct, null);
+    GlModel model = new GlModel();
+    StateTrackingGL tracker = new StateTrackingGL(model);
+    run(names, model, tracker);
+
+    System.out.println(String.format("%-16s %4d draws, %5d calls passed on, %5d elided",
+        what, model.draws.size(), tracker.getIssuedCalls(), tracker.getElidedCalls()));
+    if (direct.draws.size() != model.draws.size()) {
+      fail(what + ": " + direct.draws.size() + " draws without tracking, "
+          + model.draws.size() + " with");
+      return;
+    }
+    for (int i = 0; i < direct.draws.size(); i++) {
+      if (!direct.draws.get(i).equals(model.draws.get(i))) {
+        fail(what + ": draw " + i + " differs\n  without tracking " + direct.draws.get(i)
+            + "\n  with tracking    " + model.draws.get(i));
+        return;
+      }
+    }
+  }
+
+  //As CaptureReport: frame by frame as MainActivity would, both eyes, the scene on a plane.
+  private static void run(String[] names, GlModel model, StateTrackingGL tracker) {
+    GL gl = tracker != null ? tracker : model;
+    RenderParams renderParams = Fixtures.renderParams(gl);
+    Renderer[] renderers = new Renderer[names.length];
+    for (int i = 0; i < names.length; i++) {
+      renderers[i] = CaptureReport.create(names[i], renderParams, gl);
+      renderers[i].setup();
+      renderers[i].scene.addStatic(new Plane(200, 0, 200, new float[]{-100, -20f, -100}, true,
+          renderParams));
+      Fixtures.setEye(renderers[i].scene);
+    }
+
+    SpectrumAnalyser analyser = new SpectrumAnalyser(Fixtures.CAPTURE_SIZE / 2);
+    SpectrumFrame spectrum = new SpectrumFrame(Fixtures.CAPTURE_SIZE / 2);
+    int frames = names.length > 1 ? names.length * SWITCH_EVERY * 2 : FRAMES;
+    for (int frame = 0; frame < frames; frame++) {
+      model.distortionPass();
+      if (tracker != null) { tracker.invalidate(); }
+
+      Renderer renderer = renderers[frame / SWITCH_EVERY % renderers.length];
+      analyser.process(Fixtures.fftBytes(frame), spectrum);
+      renderer.updateSpectrum(spectrum);
+      renderer.onNewFrame(frame * FRAME_NANOS);
+      renderer.scene.compile();
+      for (int eye = 0; eye < 2; eye++) {
+        renderer.render();
+      }
+    }
+  }
+
+  private static void fail(String failure) {
+    System.out.println("FAIL: " + failure);
+    failures++;
+  }
+
+  /**
+   * The GL state the calls leave behind, as far as drawing goes, with each draw written down as
+   * the state it was made in. Uniforms belong to their program and outlive switching away from it.
+   */
+  private static final class GlModel implements GL {
+    final List<String> draws = new ArrayList<String>();
+
+    private int program, arrayBuffer, elementBuffer, nextBuffer = 1;
+    private final boolean[] enabled = new boolean[16];
+    private final String[] pointers = new String[16];
+    private final Map<Integer, TreeMap<Integer, String>> uniforms =
+        new HashMap<Integer, TreeMap<Integer, String>>();
+
+    //What the distortion pass might leave behind: its own program, buffers and attributes.
+    void distortionPass() {
+      glUseProgram(DISTORTION_PROGRAM);
+      glBindBuffer(GL_ARRAY_BUFFER, DISTORTION_BUFFER);
+      glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, DISTORTION_BUFFER + 1);
+      for (int i = 0; i < 4; i++) {
+        glEnableVertexAttribArray(i);
+        glVertexAttribPointer(i, 2, GL_FLOAT, false, 16, i * 8);
+      }
+      glUniform4fv(0, 1, new float[]{1, 2, 3, 4}, 0);
+    }
+
+    private void draw(String call) {
+      StringBuilder state = new StringBuilder(call);
+      state.append(" program ").append(program).append(" elements ").append(elementBuffer);
+      for (int i = 0; i < enabled.length; i++) {
+        if (enabled[i]) { state.append(" attrib ").append(i).append(pointers[i]); }
+      }
+      TreeMap<Integer, String> values = uniforms.get(program);
+      if (values != null) {
+        for (Map.Entry<Integer, String> uniform : values.entrySet()) {
+          state.append(" uniform ").append(uniform.getKey()).append(uniform.getValue());
+        }
+      }
+      draws.add(state.toString());
+    }
+
+    private void setUniform(int location, float[] v, int offset, int length) {
+      TreeMap<Integer, String> values = uniforms.get(program);
+      if (values == null) {
+        values = new TreeMap<Integer, String>();
+        uniforms.put(program, values);
+      }
+      values.put(location, Arrays.toString(Arrays.copyOfRange(v, offset, offset + length)));
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+      this.program = program;
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+      enabled[index] = true;
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+      enabled[index] = false;
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+      for (int i = 0; i < n; i++) {
+        buffers[offset + i] = nextBuffer++;
+      }
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+      for (int i = 0; i < n; i++) {
+        if (buffers[offset + i] == arrayBuffer) { arrayBuffer = 0; }
+        if (buffers[offset + i] == elementBuffer) { elementBuffer = 0; }
+      }
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+      if (target == GL_ARRAY_BUFFER) { arrayBuffer = buffer; }
+      if (target == GL_ELEMENT_ARRAY_BUFFER) { elementBuffer = buffer; }
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {}
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {}
+
+    //The pointer reads from whatever array buffer is bound when it is set.
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                                      int stride, int offset) {
+      pointers[index] = "(buffer " + arrayBuffer + " size " + size + " type " + type
+          + (normalized ? " normalized" : "") + " stride " + stride + " offset " + offset + ")";
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+      draw("elements " + mode + " " + count + " " + type + " " + offset);
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+      draw("arrays " + mode + " " + first + " " + count);
+    }
+
+    @Override
+    public void glUniform3fv(int location, int count, float[] v, int offset) {
+      setUniform(location, v, offset, count * 3);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+      setUniform(location, v, offset, count * 4);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value,
+                                   int offset) {
+      setUniform(location, value, offset, count * 16);
+    }
+  }
+}
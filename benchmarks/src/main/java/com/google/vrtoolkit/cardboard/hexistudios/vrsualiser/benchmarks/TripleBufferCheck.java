@@ -0,0 +1,92 @@
+package com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.benchmarks;
+
+import com.google.vrtoolkit.cardboard.hexistudios.vrsualiser.audio.TripleBuffer;
+
+/**
+ * Stress check of TripleBuffer on a plain JVM: a writer thread publishes numbered frames as fast
+ * as it can while a reader thread polls them. Every slot of a frame holds its number, so a frame
+ * the writer touched while the reader had it shows up as torn. Fails (exit status 1) on a torn
+ * frame, a frame older than or the same as the last one read, or counters that don't add up:
+ * once the reader has drained the buffer, published must equal consumed + dropped.
+ * Both sides now and then yield half way through a frame, so the other gets to run at the worst
+ * moment even on a single core.
+ * Run with: ./gradlew :benchmarks:tripleBufferCheck [-Pframes=n]
+ */
+public final class TripleBufferCheck {
+  private static final int DEFAULT_FRAMES = 1000000;
+  private static final int FRAME_SIZE = 64;
+  private static final int YIELD_EVERY = 64; //Frames.
+
+  private TripleBufferCheck() {}
+
+  public static void main(String[] args) throws InterruptedException {
+    final long frames = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_FRAMES;
+    final TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(
+        new long[FRAME_SIZE], new long[FRAME_SIZE], new long[FRAME_SIZE]);
+
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (long n = 1; n <= frames; n++) {
+          long[] frame = buffer.beginWrite();
+          for (int i = 0; i < FRAME_SIZE; i++) {
+            frame[i] = n;
+            if (i == FRAME_SIZE / 2 && n % YIELD_EVERY == 0) { Thread.yield(); }
+          }
+          buffer.publish();
+        }
+      }
+    }, "writer");
+
+    long start = System.nanoTime();
+    writer.start();
+
+    long read = 0, last = 0, torn = 0, outOfOrder = 0;
+    while (true) {
+      boolean finished = !writer.isAlive(); //Read before polling, so nothing comes in after.
+      long[] frame = buffer.poll();
+      if (frame == null) {
+        if (finished) { break; }
+        continue;
+      }
+      read++;
+
+      long n = frame[0];
+      for (int i = 1; i < FRAME_SIZE; i++) {
+        if (i == FRAME_SIZE / 2 && read % YIELD_EVERY == 0) { Thread.yield(); }
+        if (frame[i] != n) {
+          torn++;
+          break;
+        }
+      }
+      if (n <= last) { outOfOrder++; }
+      last = n;
+      if (buffer.latest() != frame) { outOfOrder++; }
+    }
+    writer.join();
+    long elapsed = System.nanoTime() - start;
+
+    long published = buffer.getPublished(), consumed = buffer.getConsumed();
+    long dropped = buffer.getDropped();
+    System.out.println(String.format("%d frames in %d ms: %d read, %d dropped",
+        published, elapsed / 1000000, consumed, dropped));
+
+    boolean failed = false;
+    failed |= check(published == frames, "published " + published + ", expected " + frames);
+    failed |= check(consumed == read, "consumed " + consumed + ", but " + read + " were read");
+    failed |= check(published == consumed + dropped, "published " + published
+        + " != consumed " + consumed + " + dropped " + dropped);
+    failed |= check(last == frames, "last frame read was " + last + ", not the newest");
+    failed |= check(torn == 0, torn + " torn frames");
+    failed |= check(outOfOrder == 0, outOfOrder + " frames out of order");
+
+    if (failed) { System.exit(1); }
+    System.out.println("OK");
+  }
+
+  //Prints the failure, returns true if there was one.
+  private static boolean check(boolean ok, String failure) {
+    if (!ok) { System.out.println("FAIL: " + failure); }
+    return !ok;
+  }
+}